@@ -0,0 +1,61 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+
+/**
+ * 벤치마크 공통 - 외부 서버 없이 같은 JVM 의 H2 메모리 DB 를 사용한다.
+ */
+public abstract class BenchmarkSupport {
+
+  public static String memoryUrl(String name) {
+    return plainMemoryUrl(name) + ";INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+  }
+
+  private static String plainMemoryUrl(String name) {
+    return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+  }
+
+  public static HikariDataSource pooled(String name, int maximumPoolSize) {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(memoryUrl(name));
+    dataSource.setUsername(USERNAME);
+    dataSource.setPassword(PASSWORD);
+    dataSource.setMaximumPoolSize(maximumPoolSize);
+    dataSource.setPoolName(name);
+    return dataSource;
+  }
+
+  /**
+   * 매번 새로운 커넥션을 맺는 DataSource
+   * 스키마는 처음 한 번만 만들고, 이후 커넥션은 INIT 스크립트 없이 맺어서 커넥션 생성 비용만 측정되게 한다.
+   */
+  public static DriverManagerDataSource driverManager(String name) {
+    try (Connection ignored = DriverManager.getConnection(memoryUrl(name), USERNAME, PASSWORD)) {
+      return new DriverManagerDataSource(plainMemoryUrl(name), USERNAME, PASSWORD);
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 스프링 컨테이너 없이 @Transactional 이 적용된 프록시를 만든다. (스프링 AOP 가 만드는 것과 같은 CGLIB 프록시)
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T transactionalProxy(T target, TransactionManager transactionManager) {
+    ProxyFactory proxyFactory = new ProxyFactory(target);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+    return (T) proxyFactory.getProxy();
+  }
+}
@@ -0,0 +1,87 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import oneny.jdbcspring.repository.support.SqlExceptionTranslators;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 중복 키 예외가 쏟아질 때(ExTranslatorV1Test 상황) 예외 변환 비용
+ * newTranslator - 리포지토리 인스턴스마다 SQLErrorCodeSQLExceptionTranslator(dataSource) (이전 MemberRepositoryV4_2)
+ * sharedSpring - 하나를 공유하는 SQLErrorCodeSQLExceptionTranslator
+ * errorCodeTable - SqlExceptionTranslators 의 ErrorCodeTranslator
+ * saveDuplicate - MemberRepositoryV4_2.save()로 실제 중복 키 insert 부터 변환까지
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ExceptionTranslatorBenchmark {
+
+  private static final String MEMBER_ID = "dupKey";
+
+  private HikariDataSource dataSource;
+  private SQLException duplicateKey;
+  private SQLErrorCodeSQLExceptionTranslator sharedSpring;
+  private SQLExceptionTranslator errorCodeTable;
+  private MemberRepositoryV4_2 repository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("translator", 8);
+    repository = new MemberRepositoryV4_2(dataSource);
+    repository.save(new Member(MEMBER_ID, 0));
+    try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+      stmt.executeUpdate("insert into member(member_id, money) values ('" + MEMBER_ID + "', 0)");
+    } catch (SQLException e) {
+      duplicateKey = e;
+    }
+    sharedSpring = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+    sharedSpring.translate("save", null, duplicateKey);
+    errorCodeTable = SqlExceptionTranslators.forDataSource(dataSource);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    repository.delete(MEMBER_ID);
+    dataSource.close();
+  }
+
+  @Benchmark
+  public DataAccessException newTranslator() {
+    return new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("save", null, duplicateKey);
+  }
+
+  @Benchmark
+  public DataAccessException sharedSpring() {
+    return sharedSpring.translate("save", null, duplicateKey);
+  }
+
+  @Benchmark
+  public DataAccessException errorCodeTable() {
+    return errorCodeTable.translate("save", null, duplicateKey);
+  }
+
+  @Benchmark
+  public DataAccessException saveDuplicate() {
+    try {
+      repository.save(new Member(MEMBER_ID, 0));
+      throw new IllegalStateException("duplicate key expected");
+    } catch (DuplicateKeyException e) {
+      return e;
+    }
+  }
+}
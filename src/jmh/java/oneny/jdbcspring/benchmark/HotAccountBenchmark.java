@@ -0,0 +1,58 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.CoalescingMoneyUpdater;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 입금이 한 회원에 몰릴 때 - 요청마다 update vs CoalescingMoneyUpdater 로 합쳐서 update
+ * 16개 스레드가 같은 회원에게 입금한다. windowMicros 는 변경분을 모으는 시간이다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class HotAccountBenchmark {
+
+  private static final String HOT_MEMBER = "hotMember";
+
+  @Param({"200", "1000"})
+  public int windowMicros;
+
+  private HikariDataSource dataSource;
+  private MemberRepositoryV4_2 repository;
+  private CoalescingMoneyUpdater updater;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("hot_" + windowMicros, 16);
+    repository = new MemberRepositoryV4_2(dataSource);
+    repository.save(new Member(HOT_MEMBER, 0));
+    updater = new CoalescingMoneyUpdater(repository, Duration.ofNanos(windowMicros * 1000L), 1024, 2);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    updater.close();
+    repository.delete(HOT_MEMBER);
+    dataSource.close();
+  }
+
+  @Benchmark
+  public int direct() {
+    return repository.incrementMoney(HOT_MEMBER, 1);
+  }
+
+  @Benchmark
+  public void coalesced() {
+    updater.addMoney(HOT_MEMBER, 1).join();
+  }
+}
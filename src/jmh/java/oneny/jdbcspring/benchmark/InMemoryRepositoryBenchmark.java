@@ -0,0 +1,183 @@
+package oneny.jdbcspring.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.InMemoryMemberRepository;
+import oneny.jdbcspring.repository.MemberRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 회원 1000만 명 - InMemoryMemberRepository(open addressing, int/long 배열) vs ConcurrentHashMap<String, Member>
+ * 채운 후 늘어난 힙 사용량을 로그로 출력하고, 무작위 회원 조회/입금 처리량을 잰다.
+ * memberId 문자열은 측정 전에 만들어 두므로 힙 사용량에 포함되지 않는다. (두 구현 모두 같은 문자열을 키로 참조한다)
+ */
+@Slf4j
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Threads(8)
+@State(Scope.Benchmark)
+public class InMemoryRepositoryBenchmark {
+
+  @Param({"10000000"})
+  public int members;
+
+  @Param({"primitive", "concurrentHashMap"})
+  public String repositoryType;
+
+  private String[] memberIds;
+  private MemberRepository repository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    memberIds = new String[members];
+    for (int i = 0; i < members; i++) {
+      memberIds[i] = "m" + i;
+    }
+
+    long before = usedHeap();
+    repository = repositoryType.equals("primitive")
+            ? new InMemoryMemberRepository(members, 64)
+            : new MapMemberRepository(members);
+    for (String memberId : memberIds) {
+      repository.save(new Member(memberId, 10000));
+    }
+    long footprint = usedHeap() - before;
+    log.info("{} footprint={}MB ({} bytes/member, memberId strings excluded)",
+            repositoryType, footprint / (1024 * 1024), footprint / members);
+  }
+
+  @Benchmark
+  public Member findById() {
+    return repository.findById(memberIds[ThreadLocalRandom.current().nextInt(members)]);
+  }
+
+  @Benchmark
+  public int incrementMoney() {
+    return repository.incrementMoney(memberIds[ThreadLocalRandom.current().nextInt(members)], 1);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * 비교 대상 - 회원마다 Member 객체와 맵 엔트리를 만든다.
+   */
+  static class MapMemberRepository implements MemberRepository {
+
+    private final Map<String, Member> store;
+
+    MapMemberRepository(int expectedSize) {
+      this.store = new ConcurrentHashMap<>(expectedSize);
+    }
+
+    @Override
+    public Member save(Member member) {
+      if (store.putIfAbsent(member.getMemberId(), new Member(member.getMemberId(), member.getMoney())) != null) {
+        throw new DuplicateKeyException("member already exists memberId=" + member.getMemberId());
+      }
+      return member;
+    }
+
+    @Override
+    public Member findById(String memberId) {
+      Member member = store.get(memberId);
+      if (member == null) {
+        throw new EmptyResultDataAccessException(1);
+      }
+      synchronized (member) {
+        return new Member(member.getMemberId(), member.getMoney(), member.getVersion());
+      }
+    }
+
+    @Override
+    public Member findByIdForUpdate(String memberId) {
+      return findById(memberId);
+    }
+
+    @Override
+    public Stream<Member> streamAll(int fetchSize) {
+      return store.values().stream().map(member -> {
+        synchronized (member) {
+          return new Member(member.getMemberId(), member.getMoney(), member.getVersion());
+        }
+      });
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+      Member member = store.get(memberId);
+      if (member != null) {
+        synchronized (member) {
+          member.setMoney(money);
+          member.setVersion(member.getVersion() + 1);
+        }
+      }
+    }
+
+    @Override
+    public void updateWithVersion(String memberId, int money, long version) {
+      Member member = store.get(memberId);
+      if (member == null) {
+        throw new OptimisticLockingFailureException("member version conflict memberId=" + memberId + ", version=" + version);
+      }
+      synchronized (member) {
+        if (member.getVersion() != version) {
+          throw new OptimisticLockingFailureException("member version conflict memberId=" + memberId + ", version=" + version);
+        }
+        member.setMoney(money);
+        member.setVersion(version + 1);
+      }
+    }
+
+    @Override
+    public int incrementMoney(String memberId, int amount) {
+      Member member = store.get(memberId);
+      if (member == null) {
+        return 0;
+      }
+      synchronized (member) {
+        member.setMoney(member.getMoney() + amount);
+        member.setVersion(member.getVersion() + 1);
+      }
+      return 1;
+    }
+
+    @Override
+    public int decrementMoney(String memberId, int amount, boolean nonNegative) {
+      Member member = store.get(memberId);
+      if (member == null) {
+        return 0;
+      }
+      synchronized (member) {
+        if (nonNegative && member.getMoney() < amount) {
+          return 0;
+        }
+        member.setMoney(member.getMoney() - amount);
+        member.setVersion(member.getVersion() + 1);
+      }
+      return 1;
+    }
+
+    @Override
+    public void delete(String memberId) {
+      store.remove(memberId);
+    }
+  }
+}
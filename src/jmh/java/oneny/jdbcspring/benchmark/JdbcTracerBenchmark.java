@@ -0,0 +1,106 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import oneny.jdbcspring.trace.JdbcTraceEvent;
+import oneny.jdbcspring.trace.JdbcTraceSink;
+import oneny.jdbcspring.trace.JdbcTracer;
+import oneny.jdbcspring.trace.RingBufferTraceSink;
+import oneny.jdbcspring.trace.Slf4jTraceSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JDBC 추적 비용 - 추적 끔 / 비동기 링 버퍼로 모두 추적 / jdbc.trace DEBUG 로 모두 출력
+ * 리포지토리는 생성 시점의 JdbcTracer.getDefault()를 사용하므로 setUp 에서 tracer 를 바꾸고 리포지토리를 만든다.
+ * 스레드마다 다른 회원을 변경해서 로우 락 경합 없이 추적 비용만 비교한다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class JdbcTracerBenchmark {
+
+  @Param({"disabled", "asyncRingBuffer", "slf4j"})
+  private String tracer;
+
+  private final AtomicInteger memberSequence = new AtomicInteger();
+
+  private HikariDataSource dataSource;
+  private RingBufferTraceSink ringBuffer;
+  private MemberRepositoryV4_2 repository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("jdbc_tracer", 8);
+
+    JdbcTracer defaultTracer = JdbcTracer.getDefault();
+    JdbcTracer.setDefault(createTracer());
+    try {
+      repository = new MemberRepositoryV4_2(dataSource);
+    } finally {
+      JdbcTracer.setDefault(defaultTracer);
+    }
+  }
+
+  private JdbcTracer createTracer() {
+    switch (tracer) {
+      case "disabled":
+        return JdbcTracer.disabled();
+      case "asyncRingBuffer":
+        ringBuffer = new RingBufferTraceSink(new FormattingSink(), 64 * 1024);
+        return new JdbcTracer(ringBuffer, 1.0, Map.of());
+      case "slf4j":
+        return new JdbcTracer(new Slf4jTraceSink(), 1.0, Map.of());
+      default:
+        throw new IllegalArgumentException("unknown tracer=" + tracer);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (ringBuffer != null) {
+      ringBuffer.close();
+      ringBuffer = null;
+    }
+    dataSource.close();
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadMember {
+    String memberId;
+    int money;
+
+    @Setup(Level.Trial)
+    public void setUp(JdbcTracerBenchmark benchmark) {
+      memberId = "trace" + benchmark.memberSequence.getAndIncrement();
+      benchmark.repository.save(new Member(memberId, 0));
+    }
+  }
+
+  @Benchmark
+  public void update(ThreadMember member) {
+    repository.update(member.memberId, ++member.money);
+  }
+
+  // 링 버퍼 소비 스레드에서 이벤트를 문자열로 만드는 비용만 낸다.
+  static class FormattingSink implements JdbcTraceSink {
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+
+    @Override
+    public void accept(JdbcTraceEvent event) {
+      event.toString();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import oneny.jdbcspring.repository.support.HiLoMemberIdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 새 회원 insert - ExTranslatorV1Test 의 중복 키 재시도 vs HiLoMemberIdGenerator
+ * retryOnDuplicate 는 "myId" 로 저장하고 중복이면 "myId" + 랜덤(0~9999)으로 다시 시도한다.
+ * 테이블이 찰수록 충돌이 많아지므로 iteration 마다 만든 회원을 지운다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MemberIdBenchmark {
+
+  private static final int MAX_RETRIES = 100;
+
+  private HikariDataSource dataSource;
+  private MemberRepositoryV4_2 retryRepository;
+  private MemberRepositoryV4_2 generatorRepository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("member_id", 8);
+    retryRepository = new MemberRepositoryV4_2(dataSource);
+    generatorRepository = new MemberRepositoryV4_2(dataSource);
+    generatorRepository.setIdGenerator(new HiLoMemberIdGenerator(dataSource, 1000, "g"));
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteMembers() {
+    new JdbcTemplate(dataSource).update("delete from member");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.close();
+  }
+
+  @Benchmark
+  public Member retryOnDuplicate() {
+    String memberId = "myId";
+    for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+      try {
+        return retryRepository.save(new Member(memberId, 0));
+      } catch (DuplicateKeyException e) {
+        memberId = "myId" + ThreadLocalRandom.current().nextInt(10000);
+      }
+    }
+    throw new IllegalStateException("too many duplicate keys");
+  }
+
+  @Benchmark
+  public Member generatedId() {
+    return generatorRepository.save(new Member(null, 0));
+  }
+}
@@ -0,0 +1,81 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.CachingMemberRepository;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import oneny.jdbcspring.repository.MemberRepositoryV5;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 없는 회원 조회 - findById 예외 vs findOptionalById vs 없는 회원 캐시
+ * gc 프로파일러의 gc.alloc.rate.norm 으로 예외(스택 트레이스) 생성에 드는 할당량을 비교한다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MissPathBenchmark {
+
+  private static final String MISSING_ID = "none";
+
+  private HikariDataSource dataSource;
+  private MemberRepositoryV4_2 repositoryV4_2;
+  private MemberRepositoryV5 repositoryV5;
+  private CachingMemberRepository negativeCache;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("miss_path", 8);
+    repositoryV4_2 = new MemberRepositoryV4_2(dataSource);
+    repositoryV5 = new MemberRepositoryV5(dataSource);
+    negativeCache = new CachingMemberRepository(repositoryV5, 1000, Duration.ofMinutes(1), Duration.ofSeconds(1));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.close();
+  }
+
+  @Benchmark
+  public Object exceptionV4_2() {
+    try {
+      return repositoryV4_2.findById(MISSING_ID);
+    } catch (NoSuchElementException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object exceptionV5() {
+    try {
+      return repositoryV5.findById(MISSING_ID);
+    } catch (EmptyResultDataAccessException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Optional<Member> optionalV4_2() {
+    return repositoryV4_2.findOptionalById(MISSING_ID);
+  }
+
+  @Benchmark
+  public Optional<Member> optionalV5() {
+    return repositoryV5.findOptionalById(MISSING_ID);
+  }
+
+  @Benchmark
+  public Optional<Member> negativeCache() {
+    return negativeCache.findOptionalById(MISSING_ID);
+  }
+}
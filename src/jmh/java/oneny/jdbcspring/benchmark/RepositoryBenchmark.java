@@ -0,0 +1,177 @@
+package oneny.jdbcspring.benchmark;
+
+import oneny.jdbcspring.connection.DBConnectionUtil;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.*;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MemberRepository V0 ~ V5 의 연산별 비용
+ * dataSource=driverManager 는 매번 새 커넥션, hikari 는 커넥션 풀을 사용한다.
+ * V0 은 DataSource 를 받지 않고 DBConnectionUtil 을 사용하므로 dataSource 파라미터와 상관없이 같은 결과가 나온다.
+ *
+ * ./gradlew jmh -Pjmh.includes=RepositoryBenchmark
+ * Throughput 은 ops/ms, SampleTime 은 p99 지연, gc 프로파일러는 gc.alloc.rate.norm(연산당 할당 바이트)을 보여준다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Ddb.mode=memory")
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+  private static final String MEMBER_ID = "benchRead";
+
+  @Param({"V0", "V1", "V2", "V3", "V4_1", "V4_2", "V5"})
+  public String repository;
+
+  @Param({"driverManager", "hikari"})
+  public String dataSource;
+
+  private final AtomicInteger threadSequence = new AtomicInteger();
+
+  private DataSource ds;
+  private MemberOperations operations;
+
+  /**
+   * 버전마다 시그니처가 달라서(checked 예외 유무) 벤치마크용으로 맞춘다.
+   */
+  interface MemberOperations {
+    void save(Member member) throws Exception;
+
+    Member findById(String memberId) throws Exception;
+
+    void update(String memberId, int money) throws Exception;
+
+    void delete(String memberId) throws Exception;
+  }
+
+  @State(Scope.Thread)
+  public static class Ids {
+    String prefix;
+    int sequence;
+
+    @Setup(Level.Trial)
+    public void setUp(RepositoryBenchmark benchmark) {
+      prefix = "rb" + benchmark.threadSequence.getAndIncrement() + "_";
+    }
+
+    // member_id 는 varchar(10)
+    String next() {
+      sequence = (sequence + 1) % 100_000;
+      return prefix + sequence;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    String name = "repo_" + repository + "_" + dataSource;
+    ds = dataSource.equals("hikari") ? BenchmarkSupport.pooled(name, 16) : BenchmarkSupport.driverManager(name);
+    operations = createOperations();
+    operations.save(new Member(MEMBER_ID, 10000));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    operations.delete(MEMBER_ID);
+    if (ds instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+    DBConnectionUtil.shutdown();
+  }
+
+  @Benchmark
+  public Member findById() throws Exception {
+    return operations.findById(MEMBER_ID);
+  }
+
+  @Benchmark
+  public void update() throws Exception {
+    operations.update(MEMBER_ID, 10000);
+  }
+
+  /**
+   * save 만 반복하면 테이블이 계속 커지므로 save 와 delete 를 한 번에 잰다.
+   */
+  @Benchmark
+  public void saveAndDelete(Ids ids) throws Exception {
+    String memberId = ids.next();
+    operations.save(new Member(memberId, 10000));
+    operations.delete(memberId);
+  }
+
+  private MemberOperations createOperations() {
+    switch (repository) {
+      case "V0": {
+        MemberRepositoryV0 repo = new MemberRepositoryV0();
+        return operations(repo::save, repo::findById, repo::update, repo::delete);
+      }
+      case "V1": {
+        MemberRepositoryV1 repo = new MemberRepositoryV1(ds);
+        return operations(repo::save, repo::findById, repo::update, repo::delete);
+      }
+      case "V2": {
+        MemberRepositoryV2 repo = new MemberRepositoryV2(ds);
+        return operations(repo::save, repo::findById, repo::update, repo::delete);
+      }
+      case "V3": {
+        MemberRepositoryV3 repo = new MemberRepositoryV3(ds);
+        return operations(repo::save, repo::findById, repo::update, repo::delete);
+      }
+      case "V4_1":
+        return operations(new MemberRepositoryV4_1(ds));
+      case "V4_2":
+        return operations(new MemberRepositoryV4_2(ds));
+      case "V5":
+        return operations(new MemberRepositoryV5(ds));
+      default:
+        throw new IllegalArgumentException("unknown repository=" + repository);
+    }
+  }
+
+  private static MemberOperations operations(MemberRepository repo) {
+    return operations(repo::save, repo::findById, repo::update, repo::delete);
+  }
+
+  private static MemberOperations operations(ThrowingConsumer<Member> save, ThrowingFunction<String, Member> findById,
+                                             ThrowingUpdate update, ThrowingConsumer<String> delete) {
+    return new MemberOperations() {
+      @Override
+      public void save(Member member) throws Exception {
+        save.accept(member);
+      }
+
+      @Override
+      public Member findById(String memberId) throws Exception {
+        return findById.apply(memberId);
+      }
+
+      @Override
+      public void update(String memberId, int money) throws Exception {
+        update.update(memberId, money);
+      }
+
+      @Override
+      public void delete(String memberId) throws Exception {
+        delete.accept(memberId);
+      }
+    };
+  }
+
+  interface ThrowingConsumer<T> {
+    void accept(T value) throws Exception;
+  }
+
+  interface ThrowingFunction<T, R> {
+    R apply(T value) throws Exception;
+  }
+
+  interface ThrowingUpdate {
+    void update(String memberId, int money) throws Exception;
+  }
+}
@@ -0,0 +1,67 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.support.MemberRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 큰 결과 매핑 - select * + 컬럼 이름으로 읽는 람다(이전 mememberRowMapper) vs 필요한 컬럼만 + 위치로 읽는 MemberRowMapper
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+  @Param({"1000", "100000"})
+  public int rows;
+
+  private HikariDataSource dataSource;
+  private JdbcTemplate template;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("row_mapping_" + rows, 4);
+    template = new JdbcTemplate(dataSource);
+    List<Object[]> args = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      args.add(new Object[]{"row" + i, i});
+    }
+    template.batchUpdate("insert into member(member_id, money) values (?, ?)", args);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    template.update("delete from member where member_id like 'row%'");
+    dataSource.close();
+  }
+
+  @Benchmark
+  public List<Member> columnNames() {
+    return template.query("select * from member where member_id like 'row%'", columnNameRowMapper());
+  }
+
+  @Benchmark
+  public List<Member> columnIndexes() {
+    return template.query("select " + MemberRowMapper.COLUMNS + " from member where member_id like 'row%'", MemberRowMapper.INSTANCE);
+  }
+
+  private RowMapper<Member> columnNameRowMapper() {
+    return (rs, rowNum) -> {
+      Member member = new Member();
+      member.setMemberId(rs.getString("member_id"));
+      member.setMoney(rs.getInt("money"));
+      member.setVersion(rs.getLong("version"));
+      return member;
+    };
+  }
+}
@@ -0,0 +1,58 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepository;
+import oneny.jdbcspring.repository.MemberRepositoryV5;
+import oneny.jdbcspring.repository.StripedMemberRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 한 회원에 입금이 몰릴 때 - member 로우 하나(stripes=1, MemberRepositoryV5) vs 잔액 분할(StripedMemberRepository)
+ * 16개 스레드가 같은 회원에게 입금한다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class StripedAccountBenchmark {
+
+  private static final String HOT_MEMBER = "hotMember";
+
+  @Param({"1", "4", "16"})
+  public int stripes;
+
+  private HikariDataSource dataSource;
+  private MemberRepository repository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("striped_" + stripes, 16);
+    repository = stripes == 1
+            ? new MemberRepositoryV5(dataSource)
+            : new StripedMemberRepository(dataSource, new DataSourceTransactionManager(dataSource), stripes);
+    repository.save(new Member(HOT_MEMBER, 0));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    repository.delete(HOT_MEMBER);
+    dataSource.close();
+  }
+
+  @Benchmark
+  public int increment() {
+    return repository.incrementMoney(HOT_MEMBER, 1);
+  }
+
+  @Benchmark
+  public Member read() {
+    return repository.findById(HOT_MEMBER);
+  }
+}
@@ -0,0 +1,194 @@
+package oneny.jdbcspring.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepositoryV1;
+import oneny.jdbcspring.repository.MemberRepositoryV2;
+import oneny.jdbcspring.repository.MemberRepositoryV3;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import oneny.jdbcspring.service.MemberServiceV1;
+import oneny.jdbcspring.service.MemberServiceV2;
+import oneny.jdbcspring.service.MemberServiceV3_1;
+import oneny.jdbcspring.service.MemberServiceV3_2;
+import oneny.jdbcspring.service.MemberServiceV3_3;
+import oneny.jdbcspring.service.MemberServiceV4;
+import oneny.jdbcspring.service.OptimisticTransferService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 서비스 계층 트랜잭션 방식별 accountTransfer 비용
+ * V1 - 트랜잭션 없음
+ * V2 - 커넥션을 파라미터로 전달
+ * V3_1 - PlatformTransactionManager 직접 사용
+ * V3_2 - TransactionTemplate
+ * V3_3 - @Transactional AOP 프록시
+ * V4 - @Transactional AOP 프록시 + 예외 변환 (v4Direct 는 프록시 없이 TransactionTemplate 으로 감싸서 프록시 비용을 비교한다)
+ *
+ * 스레드마다 다른 계좌 쌍을 사용해서 락 경합 없이 방식 자체의 비용만 잰다.
+ * *Crossing 벤치마크는 모든 스레드가 같은 두 계좌를 절반은 A->B, 절반은 B->A 로 이체한다. (로우 락 경합)
+ * v4CrossingCurrent 는 교착 상태, 락 타임아웃 예외를 반환하고 v4CrossingPessimistic 은 memberId 순서로 잠가서 막는다.
+ * v4CrossingOptimistic 은 version 충돌 시 OptimisticTransferService 가 재시도한다.
+ * Threads1, Threads4, Threads16 이 스레드 수별로 같은 벤치마크를 실행한다.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public abstract class TransferStrategyBenchmark {
+
+  private static final int INITIAL_MONEY = 1_000_000_000;
+  private static final String CROSSING_A = "crossA";
+  private static final String CROSSING_B = "crossB";
+
+  private final AtomicInteger accountSequence = new AtomicInteger();
+  private final AtomicInteger crossingSequence = new AtomicInteger();
+
+  private HikariDataSource dataSource;
+  private MemberRepositoryV4_2 setupRepository;
+
+  private MemberServiceV1 serviceV1;
+  private MemberServiceV2 serviceV2;
+  private MemberServiceV3_1 serviceV3_1;
+  private MemberServiceV3_2 serviceV3_2;
+  private MemberServiceV3_3 serviceV3_3;
+  private MemberServiceV4 serviceV4;
+  private MemberServiceV4 serviceV4Target;
+  private OptimisticTransferService optimisticService;
+  private TransactionTemplate txTemplate;
+
+  @State(Scope.Thread)
+  public static class Accounts {
+    String fromId;
+    String toId;
+
+    @Setup(Level.Trial)
+    public void setUp(TransferStrategyBenchmark benchmark) {
+      int index = benchmark.accountSequence.getAndIncrement();
+      fromId = "tf" + index;
+      toId = "tt" + index;
+      benchmark.setupRepository.save(new Member(fromId, INITIAL_MONEY));
+      benchmark.setupRepository.save(new Member(toId, INITIAL_MONEY));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class CrossingAccounts {
+    String fromId;
+    String toId;
+
+    @Setup(Level.Trial)
+    public void setUp(TransferStrategyBenchmark benchmark) {
+      boolean forward = benchmark.crossingSequence.getAndIncrement() % 2 == 0;
+      fromId = forward ? CROSSING_A : CROSSING_B;
+      toId = forward ? CROSSING_B : CROSSING_A;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = BenchmarkSupport.pooled("transfer_" + getClass().getSimpleName(), 32);
+    setupRepository = new MemberRepositoryV4_2(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    txTemplate = new TransactionTemplate(transactionManager);
+
+    MemberRepositoryV3 repositoryV3 = new MemberRepositoryV3(dataSource);
+    serviceV1 = new MemberServiceV1(new MemberRepositoryV1(dataSource));
+    serviceV2 = new MemberServiceV2(dataSource, new MemberRepositoryV2(dataSource));
+    serviceV3_1 = new MemberServiceV3_1(transactionManager, repositoryV3);
+    serviceV3_2 = new MemberServiceV3_2(transactionManager, repositoryV3);
+    serviceV3_3 = BenchmarkSupport.transactionalProxy(new MemberServiceV3_3(repositoryV3), transactionManager);
+    serviceV4Target = new MemberServiceV4(setupRepository);
+    serviceV4 = BenchmarkSupport.transactionalProxy(serviceV4Target, transactionManager);
+    optimisticService = new OptimisticTransferService(serviceV4, 100, Duration.ofMillis(1), Duration.ofMillis(50));
+
+    setupRepository.save(new Member(CROSSING_A, INITIAL_MONEY));
+    setupRepository.save(new Member(CROSSING_B, INITIAL_MONEY));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.close();
+  }
+
+  @Benchmark
+  public void v1NoTransaction(Accounts accounts) throws SQLException {
+    serviceV1.accountTransfer(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public void v2ConnectionParameter(Accounts accounts) throws SQLException {
+    serviceV2.accountTransfer(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public void v3_1TransactionManager(Accounts accounts) throws SQLException {
+    serviceV3_1.accountTransfer(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public void v3_2TransactionTemplate(Accounts accounts) throws SQLException {
+    serviceV3_2.accountTransfer(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public void v3_3TransactionalProxy(Accounts accounts) throws SQLException {
+    serviceV3_3.accountTransfer(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public void v4TransactionalProxy(Accounts accounts) {
+    serviceV4.accountTransfer(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public void v4Direct(Accounts accounts) {
+    txTemplate.executeWithoutResult(status -> serviceV4Target.accountTransfer(accounts.fromId, accounts.toId, 1));
+  }
+
+  @Benchmark
+  public void v3_3Pessimistic(Accounts accounts) throws SQLException {
+    serviceV3_3.accountTransferPessimistic(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public Object v4CrossingCurrent(CrossingAccounts accounts) {
+    try {
+      serviceV4.accountTransfer(accounts.fromId, accounts.toId, 1);
+      return null;
+    } catch (RuntimeException e) {
+      // 교착 상태, 락 타임아웃
+      return e;
+    }
+  }
+
+  @Benchmark
+  public void v4CrossingPessimistic(CrossingAccounts accounts) {
+    serviceV4.accountTransferPessimistic(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Benchmark
+  public void v4CrossingOptimistic(CrossingAccounts accounts) {
+    optimisticService.accountTransfer(accounts.fromId, accounts.toId, 1);
+  }
+
+  @Threads(1)
+  public static class Threads1 extends TransferStrategyBenchmark {
+  }
+
+  @Threads(4)
+  public static class Threads4 extends TransferStrategyBenchmark {
+  }
+
+  @Threads(16)
+  public static class Threads16 extends TransferStrategyBenchmark {
+  }
+}
@@ -2,7 +2,8 @@ package oneny.jdbcspring.connection;
 
 public abstract class ConnectionConst {
 
-  public static final String URL = "jdbc:h2:tcp://localhost/~/test";
+  // -Ddb.mode 로 선택한 실행 모드의 URL (기본값 TCP: jdbc:h2:tcp://localhost/~/test)
+  public static final String URL = DbMode.current().getUrl();
   public static final String USERNAME = "sa";
   public static final String PASSWORD = "";
 
@@ -1,26 +1,95 @@
 package oneny.jdbcspring.connection;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 import static oneny.jdbcspring.connection.ConnectionConst.*;
 
+/**
+ * 커넥션 풀 사용
+ * 처음 getConnection() 호출 시점에 커넥션 풀을 만들고, 이후에는 풀에서 커넥션을 꺼내서 반환한다.
+ * 반환된 커넥션의 close()는 커넥션을 닫지 않고 풀에 돌려준다.
+ */
 @Slf4j
 public class DBConnectionUtil {
 
+  public static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+  public static final int DEFAULT_MINIMUM_IDLE = 2;
+  public static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+
+  private static int maximumPoolSize = DEFAULT_MAXIMUM_POOL_SIZE;
+  private static int minimumIdle = DEFAULT_MINIMUM_IDLE;
+  private static long idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+
+  private static volatile HikariDataSource dataSource;
+
   public static Connection getConnection() {
     try {
-      // 데이터베이스에 연결하려면 JDBC가 제공하는 DriverManager.getConnection(..)을 사용하면 된다.
-      // 이러헥 하면 라이브러리에 있는 데이터베이스 드라이버를 찾아서 해당 드라이버가 제공하는 커넥션을 반환해준다.
-      // 여기서는 H2 데이터베이스 드라이버가 작동해서 실제 데이터베이스와 커넥션을 맺고 그 결과를 반환해준다.
-      Connection connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-      log.info("get connection={}, class{}", connection, connection.getClass());
+      // 이전에는 DriverManager.getConnection(..)으로 매번 새로운 커넥션(TCP 연결, H2 세션)을 맺었다.
+      // 지금은 풀에 미리 만들어둔 커넥션을 재사용하므로 커넥션 획득 비용이 거의 들지 않는다.
+      Connection connection = getDataSource().getConnection();
+      if (log.isDebugEnabled()) {
+        log.debug("get connection={}, class={}", connection, connection.getClass());
+      }
       return connection;
     } catch (SQLException e) {
       throw new IllegalStateException(e);
     }
   }
+
+  /**
+   * 풀 설정 변경, 이미 만들어진 풀이 있으면 종료하고 다음 getConnection() 호출 시 새 설정으로 다시 만든다.
+   * idleTimeoutMs 동안 사용되지 않은 커넥션은 minimumIdle 개수까지 풀에서 제거된다.
+   */
+  public static synchronized void configure(int maximumPoolSize, int minimumIdle, long idleTimeoutMs) {
+    if (maximumPoolSize < 1 || minimumIdle < 0 || minimumIdle > maximumPoolSize) {
+      throw new IllegalArgumentException("invalid pool size maximumPoolSize=" + maximumPoolSize + ", minimumIdle=" + minimumIdle);
+    }
+    DBConnectionUtil.maximumPoolSize = maximumPoolSize;
+    DBConnectionUtil.minimumIdle = minimumIdle;
+    DBConnectionUtil.idleTimeoutMs = idleTimeoutMs;
+    shutdown();
+  }
+
+  /**
+   * 풀에 있는 모든 커넥션을 닫는다. 이후 getConnection()을 호출하면 풀을 다시 만든다.
+   */
+  public static synchronized void shutdown() {
+    if (dataSource != null) {
+      log.info("shutdown connection pool={}", dataSource.getPoolName());
+      dataSource.close();
+      dataSource = null;
+    }
+  }
+
+  static HikariDataSource getDataSource() {
+    HikariDataSource ds = dataSource;
+    if (ds == null) {
+      synchronized (DBConnectionUtil.class) {
+        ds = dataSource;
+        if (ds == null) {
+          ds = createDataSource();
+          dataSource = ds;
+        }
+      }
+    }
+    return ds;
+  }
+
+  private static HikariDataSource createDataSource() {
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl(URL);
+    config.setUsername(USERNAME);
+    config.setPassword(PASSWORD);
+    config.setMaximumPoolSize(maximumPoolSize);
+    config.setMinimumIdle(minimumIdle);
+    config.setIdleTimeout(idleTimeoutMs);
+    config.setPoolName("DBConnectionUtilPool");
+    log.info("create connection pool maximumPoolSize={}, minimumIdle={}, idleTimeoutMs={}", maximumPoolSize, minimumIdle, idleTimeoutMs);
+    return new HikariDataSource(config);
+  }
 }
@@ -0,0 +1,40 @@
+package oneny.jdbcspring.connection;
+
+import java.util.Locale;
+
+/**
+ * H2 실행 모드
+ * TCP - 별도로 띄운 H2 서버에 접속 (기본값)
+ * EMBEDDED - 애플리케이션과 같은 JVM 에서 파일 DB 사용
+ * MEMORY - 애플리케이션과 같은 JVM 에서 메모리 DB 사용
+ *
+ * -Ddb.mode=tcp|embedded|memory 로 선택한다.
+ * EMBEDDED, MEMORY 는 접속할 때 schema.sql 을 실행해서 member 테이블을 만든다.
+ * TCP 는 테스트에서만 SchemaInitializer(스프링 부트 테스트는 test 리소스의 spring.sql.init.mode=always)로 schema.sql 을 실행한다.
+ */
+public enum DbMode {
+
+  TCP("jdbc:h2:tcp://localhost/~/test"),
+  EMBEDDED("jdbc:h2:file:~/test-embedded;INIT=RUNSCRIPT FROM 'classpath:schema.sql'"),
+  MEMORY("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'");
+
+  public static final String PROPERTY = "db.mode";
+
+  private final String url;
+
+  DbMode(String url) {
+    this.url = url;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public static DbMode current() {
+    return from(System.getProperty(PROPERTY, TCP.name()));
+  }
+
+  public static DbMode from(String mode) {
+    return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,102 @@
+package oneny.jdbcspring.connection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HDR 히스토그램 방식의 지연 시간 히스토그램
+ * 값의 상위 7비트만 남기는 로그-선형 버킷을 사용해서 상대 오차 1% 이내로 백분위수를 구한다.
+ * 기록은 락 없이 버킷 카운트만 증가시키므로 커넥션 획득 경로에 넣어도 부담이 적다.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_COUNT = 128;
+  private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + 56 * HALF_SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalValue = new LongAdder();
+  private final AtomicLong maxValue = new AtomicLong();
+
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.incrementAndGet(indexOf(value));
+    totalCount.increment();
+    totalValue.add(value);
+    maxValue.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  public double getMean() {
+    long count = totalCount.sum();
+    return count == 0 ? 0 : (double) totalValue.sum() / count;
+  }
+
+  /**
+   * @param percentile 0 ~ 100 (예: 99.9)
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = totalCount.sum();
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += counts.get(i);
+      if (cumulative >= target) {
+        return Math.min(highestEquivalentValue(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.reset();
+    totalValue.reset();
+    maxValue.set(0);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - 6;
+    int subBucket = (int) (value >>> shift);
+    return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (subBucket - HALF_SUB_BUCKET_COUNT);
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+    long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+    return (subBucket << shift) + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + getCount()
+            + ", mean=" + (long) getMean()
+            + ", p50=" + getValueAtPercentile(50)
+            + ", p90=" + getValueAtPercentile(90)
+            + ", p99=" + getValueAtPercentile(99)
+            + ", p99.9=" + getValueAtPercentile(99.9)
+            + ", max=" + getMax();
+  }
+}
@@ -0,0 +1,131 @@
+package oneny.jdbcspring.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 커넥션 획득 대기 시간, 커넥션 보유 시간, 동시 대여 수를 기록하는 DataSource
+ * 기존 DataSource 를 감싸기만 하면 되므로 DataSource 를 주입받는 곳(리포지토리, 트랜잭션 매니저)에 그대로 사용할 수 있다.
+ *
+ * acquire - dataSource.getConnection() 에서 대기한 시간(ns), 풀이 고갈되면 이 값이 커진다.
+ *           타임아웃 등으로 실패한 획득도 대기한 시간을 기록하고 failedAcquires 로 따로 센다. (가장 느린 경우이므로 빼면 안 된다)
+ * hold - 커넥션을 얻은 후 close()로 반환할 때까지의 시간(ns)
+ * borrowed - 커넥션을 얻는 시점에 이미 대여 중이던 커넥션 수를 포함한 동시 대여 수
+ */
+@Slf4j
+public class MonitoredDataSource extends DelegatingDataSource {
+
+  private final LatencyHistogram acquireHistogram = new LatencyHistogram();
+  private final LatencyHistogram holdHistogram = new LatencyHistogram();
+  private final LatencyHistogram borrowedHistogram = new LatencyHistogram();
+  private final AtomicInteger borrowed = new AtomicInteger();
+  private final LongAdder failedAcquires = new LongAdder();
+
+  public MonitoredDataSource(DataSource targetDataSource) {
+    super(targetDataSource);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return monitor(super.getConnection(), start);
+    } catch (SQLException | RuntimeException e) {
+      acquireFailed(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return monitor(super.getConnection(username, password), start);
+    } catch (SQLException | RuntimeException e) {
+      acquireFailed(start);
+      throw e;
+    }
+  }
+
+  public LatencyHistogram getAcquireHistogram() {
+    return acquireHistogram;
+  }
+
+  public LatencyHistogram getHoldHistogram() {
+    return holdHistogram;
+  }
+
+  public LatencyHistogram getBorrowedHistogram() {
+    return borrowedHistogram;
+  }
+
+  public int getBorrowedCount() {
+    return borrowed.get();
+  }
+
+  public long getFailedAcquireCount() {
+    return failedAcquires.sum();
+  }
+
+  public void logStatistics() {
+    log.info("connection acquire(ns) {}, failed={}", acquireHistogram, failedAcquires.sum());
+    log.info("connection hold(ns) {}", holdHistogram);
+    log.info("connection borrowed {}", borrowedHistogram);
+  }
+
+  public void reset() {
+    acquireHistogram.reset();
+    holdHistogram.reset();
+    borrowedHistogram.reset();
+    failedAcquires.reset();
+  }
+
+  private void acquireFailed(long start) {
+    acquireHistogram.record(System.nanoTime() - start);
+    failedAcquires.increment();
+  }
+
+  private Connection monitor(Connection con, long start) {
+    long acquired = System.nanoTime();
+    acquireHistogram.record(acquired - start);
+    borrowedHistogram.record(borrowed.incrementAndGet());
+
+    AtomicBoolean closed = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "equals":
+                  return proxy == args[0];
+                case "hashCode":
+                  return System.identityHashCode(proxy);
+                case "toString":
+                  return "Monitored[" + con + "]";
+                case "close":
+                  if (closed.compareAndSet(false, true)) {
+                    borrowed.decrementAndGet();
+                    holdHistogram.record(System.nanoTime() - acquired);
+                  }
+                  break;
+                default:
+                  break;
+              }
+
+              try {
+                return method.invoke(con, args);
+              } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+              }
+            });
+  }
+}
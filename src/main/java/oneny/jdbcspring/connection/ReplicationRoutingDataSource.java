@@ -0,0 +1,90 @@
+package oneny.jdbcspring.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 읽기/쓰기 분리 DataSource
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 레플리카로, 나머지는 프라이머리로 보낸다.
+ * 레플리카가 여러 개면 라운드 로빈으로 나눠서 보낸다.
+ *
+ * 트랜잭션 매니저는 readOnly 플래그를 동기화 매니저에 기록하기 전에 커넥션을 먼저 얻는다.
+ * 그래서 create()로 만든 LazyConnectionDataSourceProxy 로 감싸서 실제 SQL 을 실행하는 시점에 라우팅해야 한다.
+ *
+ * 트랜잭션이 없는 읽기는 쓰기와 구분할 수 없으므로 readFromReplica()로 감싼 경우에만 레플리카로 보낸다.
+ */
+@Slf4j
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+  public static final String PRIMARY = "primary";
+  public static final String REPLICA_PREFIX = "replica-";
+
+  private static final ThreadLocal<Boolean> replicaRead = new ThreadLocal<>();
+
+  private final int replicaCount;
+  private final AtomicInteger counter = new AtomicInteger();
+
+  private ReplicationRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    for (int i = 0; i < replicas.size(); i++) {
+      targets.put(REPLICA_PREFIX + i, replicas.get(i));
+    }
+    this.replicaCount = replicas.size();
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  public static DataSource create(DataSource primary, List<DataSource> replicas) {
+    LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(new ReplicationRoutingDataSource(primary, replicas));
+    // 기본값을 지정하지 않으면 첫 커넥션 요청 때 기본값을 확인하려고 커넥션을 하나 더 얻는다.
+    proxy.setDefaultAutoCommit(true);
+    proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    return proxy;
+  }
+
+  /**
+   * 트랜잭션 밖의 읽기를 레플리카로 보낸다.
+   */
+  public static <T> T readFromReplica(Supplier<T> read) {
+    Boolean previous = replicaRead.get();
+    replicaRead.set(Boolean.TRUE);
+    try {
+      return read.get();
+    } finally {
+      if (previous == null) {
+        replicaRead.remove();
+      } else {
+        replicaRead.set(previous);
+      }
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (replicaCount == 0 || !isReadOnly()) {
+      return PRIMARY;
+    }
+    String key = REPLICA_PREFIX + Math.floorMod(counter.getAndIncrement(), replicaCount);
+    log.debug("route to {}", key);
+    return key;
+  }
+
+  private boolean isReadOnly() {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+    return Boolean.TRUE.equals(replicaRead.get());
+  }
+}
@@ -0,0 +1,24 @@
+package oneny.jdbcspring.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+/**
+ * schema.sql 실행
+ * TCP 모드는 URL 에 INIT=RUNSCRIPT 가 없어서 별도로 띄운 H2 서버의 기존 member 테이블을 그대로 쓴다.
+ * schema.sql 은 if not exists 로 작성돼 있어서 여러 번 실행해도 된다. (version 컬럼, stripe 테이블, 시퀀스 추가)
+ * 스프링 없이 DataSource 를 직접 만드는 테스트에서 사용한다. 스프링 부트 테스트는 application-tcp.properties(test)의 spring.sql.init.mode=always 로 실행한다.
+ */
+@Slf4j
+public abstract class SchemaInitializer {
+
+  public static final String SCHEMA = "schema.sql";
+
+  public static void initialize(DataSource dataSource) {
+    log.debug("run {} dataSource={}", SCHEMA, dataSource);
+    new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(dataSource);
+  }
+}
@@ -0,0 +1,7 @@
+package oneny.jdbcspring.domain;
+
+/**
+ * 잔액 변경분 - money = money + amount (출금은 음수)
+ */
+public record MoneyDelta(String memberId, int amount) {
+}
@@ -0,0 +1,7 @@
+package oneny.jdbcspring.domain;
+
+/**
+ * 이체 요청 - fromId 에서 toId 로 money 만큼 옮긴다.
+ */
+public record Transfer(String fromId, String toId, int money) {
+}
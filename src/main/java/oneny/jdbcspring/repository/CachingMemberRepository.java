@@ -0,0 +1,342 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.domain.MoneyDelta;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 조회 캐시 - MemberRepository 데코레이터
+ * 어떤 MemberRepository 구현체(V4_1, V4_2, V5)든 감싸서 findById 결과를 캐시한다.
+ * 최대 개수를 넘으면 가장 오래 사용하지 않은 회원부터 제거(LRU)하고, ttl 이 지난 회원은 다시 조회한다.
+ * negativeTtl 을 주면 findOptionalById, findByIds 에서 없던 회원도 그 시간 동안 캐시해서 DB 를 조회하지 않는다.
+ *
+ * save, saveAll, upsert, upsertAll, update, updateWithVersion, incrementMoney, decrementMoney, addMoneyAll, delete 는 트랜잭션이 끝난 후(afterCompletion) 캐시에서 제거한다.
+ * 롤백되면 DB 값이 그대로이므로 캐시도 그대로 둔다. 커밋 여부를 알 수 없을 때(STATUS_UNKNOWN)는 커밋됐을 수 있으므로 제거한다.
+ * 트랜잭션 안에서 변경한 회원은 커밋 전까지 캐시를 거치지 않고 리포지토리에서 직접 조회한다.
+ */
+@Slf4j
+public class CachingMemberRepository implements MemberRepository {
+
+  private final MemberRepository target;
+  private final int maxSize;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  private final Map<String, CacheEntry> cache;
+
+  // get()이 없는 회원으로 캐시된 경우 반환하는 표시, 밖으로 내보내지 않는다.
+  private static final Member NOT_FOUND = new Member();
+
+  // 캐시에서 제거할 때마다 증가, 조회 중에 제거가 일어났으면 조회한 값을 캐시하지 않는다.
+  private final AtomicLong invalidations = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public CachingMemberRepository(MemberRepository target, int maxSize, Duration ttl) {
+    this(target, maxSize, ttl, Duration.ZERO);
+  }
+
+  public CachingMemberRepository(MemberRepository target, int maxSize, Duration ttl, Duration negativeTtl) {
+    this.target = target;
+    this.maxSize = maxSize;
+    this.ttlNanos = ttl.toNanos();
+    this.negativeTtlNanos = negativeTtl.toNanos();
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+        if (size() > CachingMemberRepository.this.maxSize) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  // 없는 회원으로 캐시돼 있을 수 있으므로 저장한 회원도 제거한다.
+  @Override
+  public Member save(Member member) {
+    Member saved = target.save(member);
+    invalidateAfterCommit(member.getMemberId());
+    return saved;
+  }
+
+  @Override
+  public void saveAll(Collection<Member> members) {
+    target.saveAll(members);
+    for (Member member : members) {
+      invalidateAfterCommit(member.getMemberId());
+    }
+  }
+
+  @Override
+  public Member upsert(Member member) {
+    Member saved = target.upsert(member);
+    invalidateAfterCommit(member.getMemberId());
+    return saved;
+  }
+
+  @Override
+  public void upsertAll(Collection<Member> members) {
+    target.upsertAll(members);
+    for (Member member : members) {
+      invalidateAfterCommit(member.getMemberId());
+    }
+  }
+
+  @Override
+  public Member findById(String memberId) {
+    if (isChangedInTransaction(memberId)) {
+      return target.findById(memberId);
+    }
+
+    // 없는 회원으로 캐시돼 있으면 구현체와 같은 예외를 던지도록 리포지토리에서 조회한다.
+    Member cached = get(memberId);
+    if (cached != null && cached != NOT_FOUND) {
+      return cached;
+    }
+
+    long invalidationsBefore = invalidations.get();
+    Member member = target.findById(memberId);
+    put(member, invalidationsBefore);
+    return member;
+  }
+
+  @Override
+  public Optional<Member> findOptionalById(String memberId) {
+    if (isChangedInTransaction(memberId)) {
+      return target.findOptionalById(memberId);
+    }
+
+    Member cached = get(memberId);
+    if (cached == NOT_FOUND) {
+      return Optional.empty();
+    }
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+
+    long invalidationsBefore = invalidations.get();
+    Optional<Member> member = target.findOptionalById(memberId);
+    member.ifPresentOrElse(m -> put(m, invalidationsBefore), () -> putNotFound(memberId, invalidationsBefore));
+    return member;
+  }
+
+  // 락을 거는 조회는 항상 DB 에서 한다.
+  @Override
+  public Member findByIdForUpdate(String memberId) {
+    return target.findByIdForUpdate(memberId);
+  }
+
+  @Override
+  public Map<String, Optional<Member>> findByIds(Collection<String> memberIds) {
+    Map<String, Optional<Member>> result = new LinkedHashMap<>();
+    List<String> missed = new ArrayList<>();
+    for (String memberId : memberIds) {
+      Member cached = isChangedInTransaction(memberId) ? null : get(memberId);
+      result.put(memberId, cached == NOT_FOUND ? Optional.empty() : Optional.ofNullable(cached));
+      if (cached == null) {
+        missed.add(memberId);
+      }
+    }
+    if (missed.isEmpty()) {
+      return result;
+    }
+
+    long invalidationsBefore = invalidations.get();
+    target.findByIds(missed).forEach((memberId, member) -> {
+      result.put(memberId, member);
+      if (!isChangedInTransaction(memberId)) {
+        member.ifPresentOrElse(m -> put(m, invalidationsBefore), () -> putNotFound(memberId, invalidationsBefore));
+      }
+    });
+    return result;
+  }
+
+  @Override
+  public Stream<Member> streamAll(int fetchSize) {
+    return target.streamAll(fetchSize);
+  }
+
+  @Override
+  public void update(String memberId, int money) {
+    target.update(memberId, money);
+    invalidateAfterCommit(memberId);
+  }
+
+  @Override
+  public void updateWithVersion(String memberId, int money, long version) {
+    target.updateWithVersion(memberId, money, version);
+    invalidateAfterCommit(memberId);
+  }
+
+  @Override
+  public int incrementMoney(String memberId, int amount) {
+    int resultSize = target.incrementMoney(memberId, amount);
+    invalidateAfterCommit(memberId);
+    return resultSize;
+  }
+
+  @Override
+  public int decrementMoney(String memberId, int amount, boolean nonNegative) {
+    int resultSize = target.decrementMoney(memberId, amount, nonNegative);
+    invalidateAfterCommit(memberId);
+    return resultSize;
+  }
+
+  @Override
+  public int[] addMoneyAll(List<MoneyDelta> deltas) {
+    int[] result = target.addMoneyAll(deltas);
+    for (MoneyDelta delta : deltas) {
+      invalidateAfterCommit(delta.memberId());
+    }
+    return result;
+  }
+
+  @Override
+  public void delete(String memberId) {
+    target.delete(memberId);
+    invalidateAfterCommit(memberId);
+  }
+
+  public void invalidate(String memberId) {
+    invalidations.incrementAndGet();
+    synchronized (cache) {
+      cache.remove(memberId);
+    }
+  }
+
+  public void invalidateAll() {
+    invalidations.incrementAndGet();
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  public double getHitRate() {
+    long hit = hits.sum();
+    long total = hit + misses.sum();
+    return total == 0 ? 0 : (double) hit / total;
+  }
+
+  private Member get(String memberId) {
+    synchronized (cache) {
+      CacheEntry entry = cache.get(memberId);
+      if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+        hits.increment();
+        return entry.member() == null ? NOT_FOUND : copy(entry.member());
+      }
+      if (entry != null) {
+        cache.remove(memberId);
+        evictions.increment();
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  private void put(Member member, long invalidationsBefore) {
+    synchronized (cache) {
+      if (invalidations.get() == invalidationsBefore) {
+        cache.put(member.getMemberId(), new CacheEntry(copy(member), System.nanoTime() + ttlNanos));
+      }
+    }
+  }
+
+  private void putNotFound(String memberId, long invalidationsBefore) {
+    if (negativeTtlNanos <= 0) {
+      return;
+    }
+    synchronized (cache) {
+      if (invalidations.get() == invalidationsBefore) {
+        cache.put(memberId, new CacheEntry(null, System.nanoTime() + negativeTtlNanos));
+      }
+    }
+  }
+
+  // Member 는 변경 가능한 객체이므로 캐시에 넣을 때와 꺼낼 때 복사한다.
+  private Member copy(Member member) {
+    return new Member(member.getMemberId(), member.getMoney(), member.getVersion());
+  }
+
+  private boolean isChangedInTransaction(String memberId) {
+    ChangedMembers changed = (ChangedMembers) TransactionSynchronizationManager.getResource(this);
+    return changed != null && changed.memberIds.contains(memberId);
+  }
+
+  private void invalidateAfterCommit(String memberId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      invalidate(memberId);
+      return;
+    }
+
+    ChangedMembers changed = (ChangedMembers) TransactionSynchronizationManager.getResource(this);
+    if (changed == null) {
+      changed = new ChangedMembers();
+      TransactionSynchronizationManager.bindResource(this, changed);
+      TransactionSynchronizationManager.registerSynchronization(changed);
+    }
+    changed.memberIds.add(memberId);
+  }
+
+  // member 가 null 이면 없는 회원
+  private record CacheEntry(Member member, long expiresAt) {
+  }
+
+  private class ChangedMembers implements TransactionSynchronization {
+
+    private final Set<String> memberIds = new HashSet<>();
+
+    // REQUIRES_NEW 등으로 트랜잭션이 보류되면 변경 목록도 함께 보류한다.
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResourceIfPossible(CachingMemberRepository.this);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(CachingMemberRepository.this, this);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(CachingMemberRepository.this);
+      if (status != STATUS_ROLLED_BACK) {
+        memberIds.forEach(CachingMemberRepository.this::invalidate);
+      }
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 같은 회원에 대한 잔액 변경 합치기
+ * 입금이 몰리는 회원(가맹점 등)은 update 마다 같은 로우 락을 기다리며 한 줄로 처리된다.
+ * window 동안 같은 memberId 로 들어온 변경분을 모아서 money = money + 합계 update 한 번으로 실행한다.
+ *
+ * 호출한 쪽은 자기 요청의 결과를 CompletableFuture 로 받는다.
+ * 합친 변경이 실패하면(잔액 부족) 모은 변경분을 하나씩 다시 실행해서 요청마다 성공/실패를 알려준다.
+ * 회원이 없으면 모은 요청 모두 NoSuchElementException 으로 실패한다.
+ * close() 이후의 요청은 RejectedExecutionException 으로 실패한 future 를 돌려준다.
+ *
+ * 트랜잭션 밖에서 사용한다. 합쳐진 update 는 다른 요청과 함께 커밋되므로 호출한 쪽의 트랜잭션과 묶을 수 없다.
+ */
+@Slf4j
+public class CoalescingMoneyUpdater implements AutoCloseable {
+
+  private final MemberRepository memberRepository;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final ConcurrentMap<String, Group> groups = new ConcurrentHashMap<>();
+  private final ScheduledThreadPoolExecutor flusher;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder updates = new LongAdder();
+
+  public CoalescingMoneyUpdater(MemberRepository memberRepository, Duration window, int maxBatchSize, int flushThreads) {
+    if (maxBatchSize < 1 || flushThreads < 1) {
+      throw new IllegalArgumentException("invalid size maxBatchSize=" + maxBatchSize + ", flushThreads=" + flushThreads);
+    }
+    this.memberRepository = memberRepository;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    AtomicInteger sequence = new AtomicInteger();
+    this.flusher = new ScheduledThreadPoolExecutor(flushThreads, runnable -> {
+      Thread thread = new Thread(runnable, "money-coalescer-" + sequence.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.flusher.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * money = money + amount, 출금(음수)은 잔액이 음수가 되면 IllegalStateException 으로 실패한다.
+   */
+  public CompletableFuture<Void> addMoney(String memberId, int amount) {
+    if (flusher.isShutdown()) {
+      return CompletableFuture.failedFuture(new RejectedExecutionException("updater closed memberId=" + memberId));
+    }
+    requests.increment();
+    Request request = new Request(amount);
+    while (true) {
+      Group group = groups.computeIfAbsent(memberId, Group::new);
+      if (group.add(request)) {
+        return request.future;
+      }
+      // 방금 실행을 시작한 그룹이면 새 그룹에 넣는다.
+      groups.remove(memberId, group);
+    }
+  }
+
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  public long getUpdateCount() {
+    return updates.sum();
+  }
+
+  /**
+   * 모여 있는 변경분을 모두 실행한 후 종료한다.
+   */
+  @Override
+  public void close() {
+    for (Group group : groups.values()) {
+      flusher.execute(group::flush);
+    }
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void apply(String memberId, List<Request> batch) {
+    long sum = 0;
+    for (Request request : batch) {
+      sum += request.amount;
+    }
+
+    try {
+      if (sum >= Integer.MIN_VALUE && sum <= Integer.MAX_VALUE && update(memberId, (int) sum) == 1) {
+        updates.increment();
+        batch.forEach(request -> request.future.complete(null));
+        return;
+      }
+      if (batch.size() == 1) {
+        batch.get(0).future.completeExceptionally(failure(memberId));
+        return;
+      }
+
+      // 합친 변경이 실패하면 요청마다 다시 실행해서 실패한 요청만 알려준다.
+      log.debug("coalesced update failed, apply one by one memberId={}, size={}", memberId, batch.size());
+      for (Request request : batch) {
+        try {
+          updates.increment();
+          if (update(memberId, request.amount) == 1) {
+            request.future.complete(null);
+          } else {
+            request.future.completeExceptionally(failure(memberId));
+          }
+        } catch (RuntimeException e) {
+          request.future.completeExceptionally(e);
+        }
+      }
+    } catch (RuntimeException e) {
+      batch.forEach(request -> request.future.completeExceptionally(e));
+    }
+  }
+
+  private int update(String memberId, int amount) {
+    return amount >= 0
+            ? memberRepository.incrementMoney(memberId, amount)
+            : memberRepository.decrementMoney(memberId, -amount, true);
+  }
+
+  private RuntimeException failure(String memberId) {
+    if (memberRepository.findOptionalById(memberId).isEmpty()) {
+      return new NoSuchElementException("member not found memberId=" + memberId);
+    }
+    return new IllegalStateException("잔액 부족 memberId=" + memberId);
+  }
+
+  private record Request(int amount, CompletableFuture<Void> future) {
+    Request(int amount) {
+      this(amount, new CompletableFuture<>());
+    }
+  }
+
+  private class Group {
+
+    private final String memberId;
+    private final List<Request> requests = new ArrayList<>();
+    private boolean closed;
+
+    Group(String memberId) {
+      this.memberId = memberId;
+    }
+
+    synchronized boolean add(Request request) {
+      if (closed) {
+        return false;
+      }
+      requests.add(request);
+      try {
+        if (requests.size() == 1) {
+          flusher.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+        } else if (requests.size() >= maxBatchSize) {
+          // 가득 차면 window 를 기다리지 않는다.
+          closed = true;
+          groups.remove(memberId, this);
+          flusher.execute(this::flush);
+        }
+      } catch (RejectedExecutionException e) {
+        // addMoney 확인 후 close() 가 끼어든 경우 - 실행되지 않을 요청을 남기지 않는다.
+        // 앞서 들어온 요청은 이미 예약된 flush 가 shutdown 후에도 실행한다.
+        requests.remove(request);
+        request.future.completeExceptionally(e);
+      }
+      return true;
+    }
+
+    void flush() {
+      List<Request> batch;
+      synchronized (this) {
+        if (closed && requests.isEmpty()) {
+          return;
+        }
+        closed = true;
+        batch = new ArrayList<>(requests);
+        requests.clear();
+      }
+      groups.remove(memberId, this);
+      apply(memberId, batch);
+    }
+  }
+}
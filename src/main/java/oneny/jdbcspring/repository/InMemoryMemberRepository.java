@@ -0,0 +1,334 @@
+package oneny.jdbcspring.repository;
+
+import oneny.jdbcspring.domain.Member;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 메모리 MemberRepository - 테스트, 로컬 시뮬레이션, 자주 쓰는 데이터 보관용
+ * 회원마다 Member 객체를 두지 않고 memberId -> money(int), version(long) 을 배열에 저장하는 open addressing 해시 테이블이다.
+ * 테이블을 segment 개로 나누고 segment 마다 락을 걸어서 다른 segment 의 회원은 동시에 변경할 수 있다.
+ *
+ * 없는 회원, 중복 키, 낙관적 락 충돌은 MemberRepositoryV5(JdbcTemplate)와 같은 예외를 던진다.
+ * 트랜잭션에 참여하지 않으므로 롤백해도 변경이 되돌려지지 않는다. findByIdForUpdate 도 락을 걸지 않는다.
+ */
+public class InMemoryMemberRepository implements MemberRepository {
+
+  public static final int MAX_ID_LENGTH = 10;
+
+  private static final float LOAD_FACTOR = 0.75f;
+  // 삭제된 칸 표시, 찾을 때는 계속 지나가고 넣을 때는 재사용한다.
+  private static final String DELETED = new String("");
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  public InMemoryMemberRepository() {
+    this(1024, 64);
+  }
+
+  /**
+   * @param expectedSize 예상 회원 수, 미리 크기를 잡아두면 늘릴 때 다시 해시하는 비용이 없다.
+   * @param concurrency  segment 수 (2의 거듭제곱으로 올림)
+   */
+  public InMemoryMemberRepository(int expectedSize, int concurrency) {
+    int segmentCount = 1;
+    while (segmentCount < concurrency) {
+      segmentCount <<= 1;
+    }
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    this.segments = new Segment[segmentCount];
+    int perSegment = (int) Math.min(1 << 30, (long) (expectedSize / segmentCount / LOAD_FACTOR) + 1);
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(perSegment);
+    }
+  }
+
+  @Override
+  public Member save(Member member) {
+    String memberId = checkId("save", member.getMemberId());
+    int hash = hash(memberId);
+    if (!segmentFor(hash).insert(memberId, hash, member.getMoney())) {
+      throw new DuplicateKeyException("save; member already exists memberId=" + memberId);
+    }
+    return member;
+  }
+
+  /**
+   * JDBC 배치처럼 중복이 아닌 회원은 모두 저장하고, 중복된 memberId 를 메시지에 담는다.
+   */
+  @Override
+  public void saveAll(Collection<Member> members) {
+    List<String> failedIds = new ArrayList<>();
+    for (Member member : members) {
+      String memberId = checkId("saveAll", member.getMemberId());
+      int hash = hash(memberId);
+      if (!segmentFor(hash).insert(memberId, hash, member.getMoney())) {
+        failedIds.add(memberId);
+      }
+    }
+    if (!failedIds.isEmpty()) {
+      throw new DuplicateKeyException("saveAll failedMemberIds=" + failedIds);
+    }
+  }
+
+  @Override
+  public Member upsert(Member member) {
+    String memberId = checkId("upsert", member.getMemberId());
+    int hash = hash(memberId);
+    segmentFor(hash).upsert(memberId, hash, member.getMoney());
+    return member;
+  }
+
+  @Override
+  public Member findById(String memberId) {
+    return findOptionalById(memberId)
+            .orElseThrow(() -> new EmptyResultDataAccessException("Incorrect result size: expected 1, actual 0", 1));
+  }
+
+  @Override
+  public Optional<Member> findOptionalById(String memberId) {
+    if (memberId == null) {
+      return Optional.empty();
+    }
+    int hash = hash(memberId);
+    return Optional.ofNullable(segmentFor(hash).get(memberId, hash));
+  }
+
+  @Override
+  public Member findByIdForUpdate(String memberId) {
+    return findById(memberId);
+  }
+
+  /**
+   * 각 segment 의 스냅샷을 이어 붙인다. 읽는 동안의 변경은 보이지 않을 수 있다.
+   */
+  @Override
+  public Stream<Member> streamAll(int fetchSize) {
+    return Stream.of(segments).flatMap(segment -> segment.snapshot().stream());
+  }
+
+  @Override
+  public void update(String memberId, int money) {
+    if (memberId == null) {
+      return;
+    }
+    int hash = hash(memberId);
+    segmentFor(hash).set(memberId, hash, money, -1);
+  }
+
+  @Override
+  public void updateWithVersion(String memberId, int money, long version) {
+    // 없는 회원처럼 0 로우 변경 - V5 와 같이 버전 충돌로 알린다.
+    int hash = memberId == null ? 0 : hash(memberId);
+    if (memberId == null || !segmentFor(hash).set(memberId, hash, money, version)) {
+      throw new OptimisticLockingFailureException("member version conflict memberId=" + memberId + ", version=" + version);
+    }
+  }
+
+  @Override
+  public int incrementMoney(String memberId, int amount) {
+    if (memberId == null) {
+      return 0;
+    }
+    int hash = hash(memberId);
+    return segmentFor(hash).add(memberId, hash, amount, false);
+  }
+
+  @Override
+  public int decrementMoney(String memberId, int amount, boolean nonNegative) {
+    if (memberId == null) {
+      return 0;
+    }
+    int hash = hash(memberId);
+    return segmentFor(hash).add(memberId, hash, -amount, nonNegative);
+  }
+
+  @Override
+  public void delete(String memberId) {
+    if (memberId == null) {
+      return;
+    }
+    int hash = hash(memberId);
+    segmentFor(hash).remove(memberId, hash);
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  // DB 의 not null, varchar(10) 제약
+  private String checkId(String task, String memberId) {
+    if (memberId == null || memberId.length() > MAX_ID_LENGTH) {
+      throw new DataIntegrityViolationException(task + "; invalid memberId=" + memberId);
+    }
+    return memberId;
+  }
+
+  // 위쪽 비트로 segment, 아래쪽 비트로 칸을 고르므로 비트를 고르게 섞는다.
+  private static int hash(String memberId) {
+    int h = memberId.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private Segment segmentFor(int hash) {
+    return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+  }
+
+  private static final class Segment {
+
+    private String[] keys;
+    private int[] money;
+    private long[] versions;
+    private int size;
+    private int used; // size + 삭제 표시된 칸
+
+    Segment(int expectedSize) {
+      allocate(Math.max(8, Integer.highestOneBit(Math.max(1, expectedSize - 1)) << 1));
+    }
+
+    private void allocate(int capacity) {
+      keys = new String[capacity];
+      money = new int[capacity];
+      versions = new long[capacity];
+      used = size;
+    }
+
+    synchronized Member get(String key, int hash) {
+      int index = indexOf(key, hash);
+      return index < 0 ? null : new Member(keys[index], money[index], versions[index]);
+    }
+
+    synchronized boolean insert(String key, int hash, int value) {
+      if (indexOf(key, hash) >= 0) {
+        return false;
+      }
+      put(key, hash, value, 0);
+      return true;
+    }
+
+    synchronized void upsert(String key, int hash, int value) {
+      int index = indexOf(key, hash);
+      if (index >= 0) {
+        money[index] = value;
+        versions[index]++;
+      } else {
+        put(key, hash, value, 0);
+      }
+    }
+
+    /**
+     * expectedVersion 이 -1 이면 version 을 확인하지 않는다. 회원이 없거나 version 이 다르면 false
+     */
+    synchronized boolean set(String key, int hash, int value, long expectedVersion) {
+      int index = indexOf(key, hash);
+      if (index < 0 || (expectedVersion != -1 && versions[index] != expectedVersion)) {
+        return false;
+      }
+      money[index] = value;
+      versions[index]++;
+      return true;
+    }
+
+    synchronized int add(String key, int hash, int amount, boolean nonNegative) {
+      int index = indexOf(key, hash);
+      if (index < 0) {
+        return 0;
+      }
+      int result;
+      try {
+        result = Math.addExact(money[index], amount);
+      } catch (ArithmeticException e) {
+        // DB 의 integer 범위 초과와 같은 예외
+        throw new DataIntegrityViolationException("numeric value out of range memberId=" + key, e);
+      }
+      if (nonNegative && result < 0) {
+        return 0;
+      }
+      money[index] = result;
+      versions[index]++;
+      return 1;
+    }
+
+    synchronized void remove(String key, int hash) {
+      int index = indexOf(key, hash);
+      if (index >= 0) {
+        keys[index] = DELETED;
+        size--;
+      }
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    synchronized List<Member> snapshot() {
+      List<Member> members = new ArrayList<>(size);
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != null && keys[i] != DELETED) {
+          members.add(new Member(keys[i], money[i], versions[i]));
+        }
+      }
+      return members;
+    }
+
+    private int indexOf(String key, int hash) {
+      int mask = keys.length - 1;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        String k = keys[i];
+        if (k == null) {
+          return -1;
+        }
+        if (k != DELETED && k.equals(key)) {
+          return i;
+        }
+      }
+    }
+
+    // 없는 키를 넣는다. 처음 만나는 빈 칸이나 삭제된 칸을 사용한다.
+    private void put(String key, int hash, int value, long version) {
+      if (used + 1 > keys.length * LOAD_FACTOR) {
+        // 삭제된 칸이 많으면 같은 크기로 다시 만들어 정리한다.
+        resize(size + 1 > keys.length * LOAD_FACTOR / 2 ? keys.length << 1 : keys.length);
+      }
+      int mask = keys.length - 1;
+      int i = hash & mask;
+      while (keys[i] != null && keys[i] != DELETED) {
+        i = (i + 1) & mask;
+      }
+      if (keys[i] == null) {
+        used++;
+      }
+      keys[i] = key;
+      money[i] = value;
+      versions[i] = version;
+      size++;
+    }
+
+    private void resize(int capacity) {
+      String[] oldKeys = keys;
+      int[] oldMoney = money;
+      long[] oldVersions = versions;
+      size = 0;
+      allocate(capacity);
+      for (int i = 0; i < oldKeys.length; i++) {
+        String k = oldKeys[i];
+        if (k != null && k != DELETED) {
+          put(k, hash(k), oldMoney[i], oldVersions[i]);
+        }
+      }
+    }
+  }
+}
@@ -1,13 +1,130 @@
 package oneny.jdbcspring.repository;
 
 import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.domain.MoneyDelta;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MemberRepository {
   Member save(Member member);
 
+  /**
+   * 여러 회원을 한 번에 저장한다. 기본 구현은 save()를 반복하고, 구현체에서 JDBC 배치로 재정의한다.
+   */
+  default void saveAll(Collection<Member> members) {
+    for (Member member : members) {
+      save(member);
+    }
+  }
+
+  /**
+   * 없으면 저장하고 있으면 money 를 변경한다. (version 1 증가)
+   * 중복 키 예외를 받은 후 update 하지 않아도 되므로 같은 데이터를 여러 번 적재해도 예외가 발생하지 않는다.
+   * 기본 구현은 조회 후 save 또는 update 하고, 구현체에서 merge 한 번으로 재정의한다.
+   */
+  default Member upsert(Member member) {
+    if (findOptionalById(member.getMemberId()).isPresent()) {
+      update(member.getMemberId(), member.getMoney());
+    } else {
+      save(member);
+    }
+    return member;
+  }
+
+  /**
+   * 여러 회원을 upsert 한다. 기본 구현은 upsert()를 반복하고, 구현체에서 JDBC 배치로 재정의한다.
+   */
+  default void upsertAll(Collection<Member> members) {
+    for (Member member : members) {
+      upsert(member);
+    }
+  }
+
   Member findById(String memberId);
 
+  /**
+   * 없는 회원을 예외 대신 Optional.empty()로 알려준다.
+   * 없는 ID 조회가 많으면 예외 생성(스택 트레이스)과 변환 비용이 크므로 구현체에서 예외 없이 조회하도록 재정의한다.
+   * 기본 구현은 findById()의 예외를 잡는다.
+   */
+  default Optional<Member> findOptionalById(String memberId) {
+    try {
+      return Optional.of(findById(memberId));
+    } catch (NoSuchElementException | EmptyResultDataAccessException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * 비관적 락 - select ... for update 로 조회하고 트랜잭션이 끝날 때까지 로우 락을 유지한다.
+   * 여러 회원을 잠글 때는 교착 상태를 막기 위해 항상 같은 순서(memberId 순)로 잠가야 한다.
+   */
+  Member findByIdForUpdate(String memberId);
+
+  /**
+   * 여러 회원을 한 번에 조회한다.
+   * 요청한 memberId 순서대로 모든 memberId 를 키로 반환하고, 없는 회원은 예외 대신 Optional.empty()로 알려준다.
+   * 기본 구현은 findOptionalById()를 반복하고, 구현체에서 in 절 한 번으로 조회하도록 재정의한다.
+   */
+  default Map<String, Optional<Member>> findByIds(Collection<String> memberIds) {
+    Map<String, Optional<Member>> result = new LinkedHashMap<>();
+    for (String memberId : memberIds) {
+      result.put(memberId, findOptionalById(memberId));
+    }
+    return result;
+  }
+
+  /**
+   * 전체 회원을 한 번에 메모리에 올리지 않고 fetchSize 만큼씩 읽는다.
+   * 스트림을 끝까지 읽거나 닫으면 커넥션이 반환된다. 중간에 멈출 수 있으므로 try-with-resources 로 사용한다.
+   */
+  Stream<Member> streamAll(int fetchSize);
+
   void update(String memberId, int money);
 
+  /**
+   * 낙관적 락 - 조회할 때의 version 과 DB 의 version 이 같을 때만 변경하고 version 을 1 증가시킨다.
+   * 다른 트랜잭션이 먼저 변경했으면 OptimisticLockingFailureException 을 던진다.
+   */
+  void updateWithVersion(String memberId, int money, long version);
+
+  /**
+   * money = money + amount 를 DB 에서 계산한다. 조회 없이 한 번의 SQL 로 변경하므로 다른 트랜잭션의 변경을 덮어쓰지 않는다.
+   * 변경된 로우 수를 반환한다. 0 이면 회원이 없다.
+   * 조회 후 update 하면 그 사이 다른 트랜잭션의 변경을 덮어쓰므로 기본 구현을 두지 않는다.
+   */
+  int incrementMoney(String memberId, int amount);
+
+  /**
+   * money = money - amount 를 DB 에서 계산한다.
+   * nonNegative 가 true 면 where 절에 money >= amount 조건을 추가해서 잔액이 부족하면 변경하지 않는다.
+   * 변경된 로우 수를 반환한다. 0 이면 회원이 없거나 잔액이 부족하다.
+   */
+  int decrementMoney(String memberId, int amount, boolean nonNegative);
+
+  /**
+   * 여러 변경분을 순서대로 적용한다. 구현체에서 JDBC 배치로 한 번에 전송하도록 재정의한다.
+   * 출금(음수)은 잔액이 음수가 되면 적용하지 않는다. 변경분마다 변경된 로우 수(0 또는 1)를 같은 순서로 반환한다.
+   * 배치 중간에 하나가 0 이어도 나머지는 그대로 적용되므로, 모두 성공해야 하면 호출하는 쪽에서 세이브포인트로 되돌려야 한다.
+   * 기본 구현은 incrementMoney/decrementMoney 를 반복한다.
+   */
+  default int[] addMoneyAll(List<MoneyDelta> deltas) {
+    int[] result = new int[deltas.size()];
+    for (int i = 0; i < deltas.size(); i++) {
+      MoneyDelta delta = deltas.get(i);
+      result[i] = delta.amount() >= 0
+              ? incrementMoney(delta.memberId(), delta.amount())
+              : decrementMoney(delta.memberId(), -delta.amount(), true);
+    }
+    return result;
+  }
+
   void delete(String memberId);
 }
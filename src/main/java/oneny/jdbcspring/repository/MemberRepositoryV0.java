@@ -3,6 +3,7 @@ package oneny.jdbcspring.repository;
 import lombok.extern.slf4j.Slf4j;
 import oneny.jdbcspring.connection.DBConnectionUtil;
 import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.trace.JdbcTracer;
 
 import java.sql.*;
 import java.util.NoSuchElementException;
@@ -13,6 +14,8 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class MemberRepositoryV0 {
 
+  private final JdbcTracer tracer = JdbcTracer.getDefault();
+
   private static Connection getConnection() {
     return DBConnectionUtil.getConnection();
   }
@@ -79,8 +82,9 @@ public class MemberRepositoryV0 {
       pstmt = con.prepareStatement(sql);
       pstmt.setInt(1, money);
       pstmt.setString(2, memberId);
+      long traceStart = tracer.start("update");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("update", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       log.error("db error", e);
       throw e;
@@ -99,8 +103,9 @@ public class MemberRepositoryV0 {
       con = getConnection();
       pstmt = con.prepareStatement(sql);
       pstmt.setString(1, memberId);
+      long traceStart = tracer.start("delete");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("delete", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       log.error("db error", e);
       throw e;
@@ -2,6 +2,7 @@ package oneny.jdbcspring.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.trace.JdbcTracer;
 import org.springframework.jdbc.support.JdbcUtils;
 
 import javax.sql.DataSource;
@@ -15,14 +16,16 @@ import java.util.NoSuchElementException;
 public class MemberRepositoryV2 {
 
   private final DataSource dataSource;
+  private final JdbcTracer tracer = JdbcTracer.getDefault();
 
   public MemberRepositoryV2(DataSource dataSource) {
     this.dataSource = dataSource;
   }
 
   private Connection getConnection() throws SQLException {
+    long traceStart = tracer.start("getConnection");
     Connection con = dataSource.getConnection();
-    log.info("get connection={}, class={}", con, con.getClass());
+    tracer.end("getConnection", null, 0, traceStart, con);
     return con;
   }
 
@@ -118,8 +121,9 @@ public class MemberRepositoryV2 {
       pstmt = con.prepareStatement(sql);
       pstmt.setInt(1, money);
       pstmt.setString(2, memberId);
+      long traceStart = tracer.start("update");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("update", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       log.error("db error", e);
       throw e;
@@ -137,8 +141,9 @@ public class MemberRepositoryV2 {
       pstmt = con.prepareStatement(sql);
       pstmt.setInt(1, money);
       pstmt.setString(2, memberId);
+      long traceStart = tracer.start("update");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("update", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       log.error("db error", e);
       throw e;
@@ -157,8 +162,9 @@ public class MemberRepositoryV2 {
       con = getConnection();
       pstmt = con.prepareStatement(sql);
       pstmt.setString(1, memberId);
+      long traceStart = tracer.start("delete");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("delete", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       log.error("db error", e);
       throw e;
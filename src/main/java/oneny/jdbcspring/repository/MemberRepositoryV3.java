@@ -2,6 +2,9 @@ package oneny.jdbcspring.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.support.MemberRowMapper;
+import oneny.jdbcspring.repository.support.PreparedStatementCache;
+import oneny.jdbcspring.trace.JdbcTracer;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 
@@ -18,11 +21,17 @@ import java.util.NoSuchElementException;
 public class MemberRepositoryV3 {
 
   private final DataSource dataSource;
+  private final JdbcTracer tracer = JdbcTracer.getDefault();
+  private final PreparedStatementCache statementCache = new PreparedStatementCache();
 
   public MemberRepositoryV3(DataSource dataSource) {
     this.dataSource = dataSource;
   }
 
+  public PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
   private Connection getConnection() throws SQLException {
 //    Connection con = dataSource.getConnection();
     // 주의! 트랜잭션 동기화를 사용하려면 DatqSourceUtils를 사용해야 한다.
@@ -30,8 +39,9 @@ public class MemberRepositoryV3 {
     // 트랜잭션 동기화 매니저는 관리하는 커넥션이 있으면 해당 커넥션을 반환한다.
     // 트랜잭션 동기화 매니저가 관리하는 커넥션이 없는 경우 새로운 커넥션을 반환한다.
     // 따라서 이전처럼 파라미터로 커넥션을 전달하지 않아도 된다.(MemberService에서 JDBC 구현 기술 누수 문제 해결)
+    long traceStart = tracer.start("getConnection");
     Connection con = DataSourceUtils.getConnection(dataSource);
-    log.info("get connection={}, class={}", con, con.getClass());
+    tracer.end("getConnection", null, 0, traceStart, con);
     return con;
   }
 
@@ -43,7 +53,7 @@ public class MemberRepositoryV3 {
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql); // 데이터베이스에 전달한 SQL과 파라미터로 전달한 데이터들을 준비
+      pstmt = statementCache.prepare(con, sql); // 데이터베이스에 전달한 SQL과 파라미터로 전달한 데이터들을 준비
       pstmt.setString(1, member.getMemberId());
       pstmt.setInt(2, member.getMoney());
       // executeUpdate 는 int를 반환하는데 영향받은 DB row 수를 반환한다.
@@ -58,23 +68,32 @@ public class MemberRepositoryV3 {
   }
 
   public Member findById(String memberId) throws SQLException {
-    String sql = "select * from member where member_id = ?";
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ?";
+    return findMember(sql, memberId);
+  }
+
+  /**
+   * 비관적 락 - select ... for update 로 조회한 로우에 트랜잭션이 끝날 때까지 락을 건다.
+   * 트랜잭션 안에서 호출해야 한다. 트랜잭션 밖이면 조회가 끝나자마자 커밋되면서 락이 풀린다.
+   */
+  public Member findByIdForUpdate(String memberId) throws SQLException {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ? for update";
+    return findMember(sql, memberId);
+  }
 
+  private Member findMember(String sql, String memberId) throws SQLException {
     Connection con = null;
     PreparedStatement pstmt = null;
     ResultSet rs = null;
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
 
       pstmt.setString(1, memberId);
       rs = pstmt.executeQuery();
       if (rs.next()) {
-        Member member = new Member();
-        member.setMemberId(rs.getString("member_id"));
-        member.setMoney(rs.getInt("money"));
-        return member;
+        return MemberRowMapper.INSTANCE.mapRow(rs, 0);
       } else {
         throw new NoSuchElementException("member not found memberId=" + memberId);
       }
@@ -87,18 +106,19 @@ public class MemberRepositoryV3 {
   }
 
   public void update(String memberId, int money) throws SQLException {
-    String sql = "update member set money=? where member_id=?";
+    String sql = "update member set money=?, version=version+1 where member_id=?";
 
     Connection con = null;
     PreparedStatement pstmt = null;
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
       pstmt.setInt(1, money);
       pstmt.setString(2, memberId);
+      long traceStart = tracer.start("update");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("update", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       log.error("db error", e);
       throw e;
@@ -115,10 +135,11 @@ public class MemberRepositoryV3 {
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
       pstmt.setString(1, memberId);
+      long traceStart = tracer.start("delete");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("delete", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       log.error("db error", e);
       throw e;
@@ -129,7 +150,8 @@ public class MemberRepositoryV3 {
 
   private void close(Connection con, Statement stmt, ResultSet rs) {
     JdbcUtils.closeResultSet(rs);
-    JdbcUtils.closeStatement(stmt);
+    // 트랜잭션 동안 캐시된 PreparedStatement 는 닫지 않고 재사용한다.
+    statementCache.release(con, stmt);
     // 주의! - 트랜잭션 동기화를 사용하려면 DataSourceUtils를 사용해야 한다.
     // con.close()을 사용해서 직접 닫아버리면 커넥션이 유지되지 않는 무넺가 발생한다. 이 커넥션은 이후 로직은 물론이고, 트랜잭션 종료(커밋, 롤백)할 때까지 살아있어야 한다.
     // DataSourceUtils.releaseConnection()을 사용하면 커넥션을 바로 닫는 것이 아니라 트랜잭션을 사용하기 위해 동기화된 커넥션은 커넥션을 닫지 않고 그대로 유지해준다.
@@ -3,12 +3,19 @@ package oneny.jdbcspring.repository;
 import lombok.extern.slf4j.Slf4j;
 import oneny.jdbcspring.domain.Member;
 import oneny.jdbcspring.repository.ex.MyDbException;
+import oneny.jdbcspring.repository.support.MemberRowMapper;
+import oneny.jdbcspring.repository.support.PreparedStatementCache;
+import oneny.jdbcspring.repository.support.ResultSetStreams;
+import oneny.jdbcspring.trace.JdbcTracer;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 예외 누구 숨ㄴ제 해결
@@ -20,11 +27,17 @@ import java.util.NoSuchElementException;
 public class MemberRepositoryV4_1 implements MemberRepository {
 
   private final DataSource dataSource;
+  private final JdbcTracer tracer = JdbcTracer.getDefault();
+  private final PreparedStatementCache statementCache = new PreparedStatementCache();
 
   public MemberRepositoryV4_1(DataSource dataSource) {
     this.dataSource = dataSource;
   }
 
+  public PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
   private Connection getConnection() throws SQLException {
 //    Connection con = dataSource.getConnection();
     // 주의! 트랜잭션 동기화를 사용하려면 DatqSourceUtils를 사용해야 한다.
@@ -32,8 +45,9 @@ public class MemberRepositoryV4_1 implements MemberRepository {
     // 트랜잭션 동기화 매니저는 관리하는 커넥션이 있으면 해당 커넥션을 반환한다.
     // 트랜잭션 동기화 매니저가 관리하는 커넥션이 없는 경우 새로운 커넥션을 반환한다.
     // 따라서 이전처럼 파라미터로 커넥션을 전달하지 않아도 된다.(MemberService에서 JDBC 구현 기술 누수 문제 해결)
+    long traceStart = tracer.start("getConnection");
     Connection con = DataSourceUtils.getConnection(dataSource);
-    log.info("get connection={}, class={}", con, con.getClass());
+    tracer.end("getConnection", null, 0, traceStart, con);
     return con;
   }
 
@@ -46,7 +60,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql); // 데이터베이스에 전달한 SQL과 파라미터로 전달한 데이터들을 준비
+      pstmt = statementCache.prepare(con, sql); // 데이터베이스에 전달한 SQL과 파라미터로 전달한 데이터들을 준비
       pstmt.setString(1, member.getMemberId());
       pstmt.setInt(2, member.getMoney());
       // executeUpdate 는 int를 반환하는데 영향받은 DB row 수를 반환한다.
@@ -61,26 +75,47 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
   @Override
   public Member findById(String memberId) {
-    String sql = "select * from member where member_id = ?";
+    return findMember("select " + MemberRowMapper.COLUMNS + " from member where member_id = ?", memberId);
+  }
+
+  @Override
+  public Optional<Member> findOptionalById(String memberId) {
+    return Optional.ofNullable(queryMember("select " + MemberRowMapper.COLUMNS + " from member where member_id = ?", memberId));
+  }
+
+  /**
+   * 비관적 락 - select ... for update 로 조회한 로우에 트랜잭션이 끝날 때까지 락을 건다.
+   * 트랜잭션 안에서 호출해야 한다. 트랜잭션 밖이면 조회가 끝나자마자 커밋되면서 락이 풀린다.
+   */
+  @Override
+  public Member findByIdForUpdate(String memberId) {
+    return findMember("select " + MemberRowMapper.COLUMNS + " from member where member_id = ? for update", memberId);
+  }
 
+  private Member findMember(String sql, String memberId) {
+    Member member = queryMember(sql, memberId);
+    if (member == null) {
+      throw new NoSuchElementException("member not found memberId=" + memberId);
+    }
+    return member;
+  }
+
+  // 없으면 null
+  private Member queryMember(String sql, String memberId) {
     Connection con = null;
     PreparedStatement pstmt = null;
     ResultSet rs = null;
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
 
       pstmt.setString(1, memberId);
       rs = pstmt.executeQuery();
       if (rs.next()) {
-        Member member = new Member();
-        member.setMemberId(rs.getString("member_id"));
-        member.setMoney(rs.getInt("money"));
-        return member;
-      } else {
-        throw new NoSuchElementException("member not found memberId=" + memberId);
+        return MemberRowMapper.INSTANCE.mapRow(rs, 0);
       }
+      return null;
     } catch (SQLException e) {
       throw new MyDbException(e);
     } finally {
@@ -88,20 +123,117 @@ public class MemberRepositoryV4_1 implements MemberRepository {
     }
   }
 
+  /**
+   * 전방향, 읽기 전용 ResultSet 으로 fetchSize 만큼씩 읽는다.
+   * 커넥션과 PreparedStatement 는 스트림을 모두 읽거나 닫을 때 정리한다.
+   */
+  @Override
+  public Stream<Member> streamAll(int fetchSize) {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member";
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+
+    try {
+      con = getConnection();
+      pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      pstmt.setFetchSize(fetchSize);
+      rs = pstmt.executeQuery();
+    } catch (SQLException e) {
+      close(con, pstmt, rs);
+      throw new MyDbException(e);
+    }
+
+    Connection streamCon = con;
+    PreparedStatement streamPstmt = pstmt;
+    ResultSet streamRs = rs;
+    return ResultSetStreams.stream(rs, MemberRowMapper.INSTANCE,
+            () -> close(streamCon, streamPstmt, streamRs), MyDbException::new);
+  }
+
   @Override
   public void update(String memberId, int money){
-    String sql = "update member set money=? where member_id=?";
+    String sql = "update member set money=?, version=version+1 where member_id=?";
 
     Connection con = null;
     PreparedStatement pstmt = null;
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
       pstmt.setInt(1, money);
       pstmt.setString(2, memberId);
+      long traceStart = tracer.start("update");
+      int resultSize = pstmt.executeUpdate();
+      tracer.end("update", sql, resultSize, traceStart, null);
+    } catch (SQLException e) {
+      throw new MyDbException(e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
+  /**
+   * 낙관적 락 - 조회한 version 이 그대로일 때만 변경한다.
+   * 그 사이 다른 트랜잭션이 변경했으면 OptimisticLockingFailureException
+   */
+  @Override
+  public void updateWithVersion(String memberId, int money, long version) {
+    String sql = "update member set money=?, version=version+1 where member_id=? and version=?";
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+
+    try {
+      con = getConnection();
+      pstmt = statementCache.prepare(con, sql);
+      pstmt.setInt(1, money);
+      pstmt.setString(2, memberId);
+      pstmt.setLong(3, version);
+      long traceStart = tracer.start("updateWithVersion");
+      int resultSize = pstmt.executeUpdate();
+      tracer.end("updateWithVersion", sql, resultSize, traceStart, null);
+      if (resultSize == 0) {
+        throw new OptimisticLockingFailureException("member version conflict memberId=" + memberId + ", version=" + version);
+      }
+    } catch (SQLException e) {
+      throw new MyDbException(e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
+  @Override
+  public int incrementMoney(String memberId, int amount) {
+    String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+    return executeMoneyUpdate("incrementMoney", sql, memberId, amount, false);
+  }
+
+  @Override
+  public int decrementMoney(String memberId, int amount, boolean nonNegative) {
+    String sql = nonNegative
+            ? "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?"
+            : "update member set money = money - ?, version = version + 1 where member_id = ?";
+    return executeMoneyUpdate("decrementMoney", sql, memberId, amount, nonNegative);
+  }
+
+  private int executeMoneyUpdate(String operation, String sql, String memberId, int amount, boolean nonNegative) {
+    Connection con = null;
+    PreparedStatement pstmt = null;
+
+    try {
+      con = getConnection();
+      pstmt = statementCache.prepare(con, sql);
+      pstmt.setInt(1, amount);
+      pstmt.setString(2, memberId);
+      if (nonNegative) {
+        pstmt.setInt(3, amount);
+      }
+      long traceStart = tracer.start(operation);
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end(operation, sql, resultSize, traceStart, null);
+      return resultSize;
     } catch (SQLException e) {
       throw new MyDbException(e);
     } finally {
@@ -118,10 +250,11 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
       pstmt.setString(1, memberId);
+      long traceStart = tracer.start("delete");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("delete", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       throw new MyDbException(e);
     } finally {
@@ -131,7 +264,8 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
   private void close(Connection con, Statement stmt, ResultSet rs) {
     JdbcUtils.closeResultSet(rs);
-    JdbcUtils.closeStatement(stmt);
+    // 트랜잭션 동안 캐시된 PreparedStatement 는 닫지 않고 재사용한다.
+    statementCache.release(con, stmt);
     // 주의! - 트랜잭션 동기화를 사용하려면 DataSourceUtils를 사용해야 한다.
     // con.close()을 사용해서 직접 닫아버리면 커넥션이 유지되지 않는 무넺가 발생한다. 이 커넥션은 이후 로직은 물론이고, 트랜잭션 종료(커밋, 롤백)할 때까지 살아있어야 한다.
     // DataSourceUtils.releaseConnection()을 사용하면 커넥션을 바로 닫는 것이 아니라 트랜잭션을 사용하기 위해 동기화된 커넥션은 커넥션을 닫지 않고 그대로 유지해준다.
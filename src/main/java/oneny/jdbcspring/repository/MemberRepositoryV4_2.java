@@ -2,15 +2,30 @@ package oneny.jdbcspring.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.domain.MoneyDelta;
 import oneny.jdbcspring.repository.ex.MyDbException;
+import oneny.jdbcspring.repository.support.BatchSupport;
+import oneny.jdbcspring.repository.support.MemberIdGenerator;
+import oneny.jdbcspring.repository.support.MemberRowMapper;
+import oneny.jdbcspring.repository.support.PreparedStatementCache;
+import oneny.jdbcspring.repository.support.ResultSetStreams;
+import oneny.jdbcspring.repository.support.SqlExceptionTranslators;
+import oneny.jdbcspring.trace.JdbcTracer;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
-import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.SQLExceptionTranslator;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * SQLExceptionTranslator 추가
@@ -18,12 +33,48 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class MemberRepositoryV4_2 implements MemberRepository {
 
+  /**
+   * member_id 를 varchar(10)으로 캐스팅하면 긴 ID 가 save 와 다르게 처리되므로 길이 없이 받고,
+   * 길이 검사는 member 테이블 컬럼에 맡긴다.
+   */
+  private static final String UPSERT_SQL =
+          "merge into member m using (select cast(? as varchar) as member_id, cast(? as integer) as money) s " +
+          "on (m.member_id = s.member_id) " +
+          "when matched then update set money = s.money, version = m.version + 1 " +
+          "when not matched then insert (member_id, money) values (s.member_id, s.money)";
+
   private final DataSource dataSource;
+  private final JdbcTracer tracer = JdbcTracer.getDefault();
+  private final PreparedStatementCache statementCache = new PreparedStatementCache();
   private final SQLExceptionTranslator exTranslator;
+  private int batchSize = BatchSupport.DEFAULT_BATCH_SIZE;
+  private MemberIdGenerator idGenerator;
 
   public MemberRepositoryV4_2(DataSource dataSource) {
+    // 인스턴스마다 SQLErrorCodeSQLExceptionTranslator 를 만들지 않고 데이터베이스별로 공유한다.
+    this(dataSource, SqlExceptionTranslators.forDataSource(dataSource));
+  }
+
+  public MemberRepositoryV4_2(DataSource dataSource, SQLExceptionTranslator exTranslator) {
     this.dataSource = dataSource;
-    this.exTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+    this.exTranslator = exTranslator;
+  }
+
+  public void setBatchSize(int batchSize) {
+    BatchSupport.checkBatchSize(batchSize);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * 설정하면 memberId 가 없는 회원을 저장할 때 ID 를 만들어 넣는다.
+   * 중복 키 예외를 받고 다른 ID 로 다시 시도하지 않아도 된다.
+   */
+  public void setIdGenerator(MemberIdGenerator idGenerator) {
+    this.idGenerator = idGenerator;
+  }
+
+  public PreparedStatementCache getStatementCache() {
+    return statementCache;
   }
 
   private Connection getConnection() throws SQLException {
@@ -33,21 +84,23 @@ public class MemberRepositoryV4_2 implements MemberRepository {
     // 트랜잭션 동기화 매니저는 관리하는 커넥션이 있으면 해당 커넥션을 반환한다.
     // 트랜잭션 동기화 매니저가 관리하는 커넥션이 없는 경우 새로운 커넥션을 반환한다.
     // 따라서 이전처럼 파라미터로 커넥션을 전달하지 않아도 된다.(MemberService에서 JDBC 구현 기술 누수 문제 해결)
+    long traceStart = tracer.start("getConnection");
     Connection con = DataSourceUtils.getConnection(dataSource);
-    log.info("get connection={}, class={}", con, con.getClass());
+    tracer.end("getConnection", null, 0, traceStart, con);
     return con;
   }
 
   @Override
   public Member save(Member member) {
     String sql = "insert into member(member_id, money) values (?, ?)";
+    assignId(member);
 
     Connection con = null;
     PreparedStatement pstmt = null;
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql); // 데이터베이스에 전달한 SQL과 파라미터로 전달한 데이터들을 준비
+      pstmt = statementCache.prepare(con, sql); // 데이터베이스에 전달한 SQL과 파라미터로 전달한 데이터들을 준비
       pstmt.setString(1, member.getMemberId());
       pstmt.setInt(2, member.getMoney());
       // executeUpdate 는 int를 반환하는데 영향받은 DB row 수를 반환한다.
@@ -61,49 +114,252 @@ public class MemberRepositoryV4_2 implements MemberRepository {
     }
   }
 
+  /**
+   * batchSize 마다 executeBatch()로 한 번에 전송한다.
+   * 중복 키 등으로 실패하면 실패한 memberId 를 메시지에 담아 예외 변환기로 변환한다.
+   * 앞서 전송된 배치는 되돌리지 않으므로 전부 저장하거나 전부 실패해야 하면 트랜잭션 안에서 호출해야 한다.
+   */
+  @Override
+  public void saveAll(Collection<Member> members) {
+    String sql = "insert into member(member_id, money) values (?, ?)";
+    members.forEach(this::assignId);
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+    List<Member> batch = new ArrayList<>(Math.min(batchSize, members.size()));
+
+    try {
+      con = getConnection();
+      // 배치 중에 실패하면 남은 배치 상태를 알 수 없으므로 캐시하지 않고 매번 준비한다.
+      pstmt = con.prepareStatement(sql);
+      for (Member member : members) {
+        pstmt.setString(1, member.getMemberId());
+        pstmt.setInt(2, member.getMoney());
+        pstmt.addBatch();
+        batch.add(member);
+
+        if (batch.size() == batchSize) {
+          pstmt.executeBatch();
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        pstmt.executeBatch();
+      }
+    } catch (BatchUpdateException e) {
+      List<String> failedIds = BatchSupport.failedKeys(batch, e, Member::getMemberId);
+      throw exTranslator.translate("saveAll failedMemberIds=" + failedIds, sql, e);
+    } catch (SQLException e) {
+      throw exTranslator.translate("saveAll", sql, e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
+  /**
+   * merge 한 번으로 insert 또는 update 한다. 있으면 version 을 1 증가시킨다.
+   */
+  @Override
+  public Member upsert(Member member) {
+    assignId(member);
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+
+    try {
+      con = getConnection();
+      pstmt = statementCache.prepare(con, UPSERT_SQL);
+      pstmt.setString(1, member.getMemberId());
+      pstmt.setInt(2, member.getMoney());
+      long traceStart = tracer.start("upsert");
+      int resultSize = pstmt.executeUpdate();
+      tracer.end("upsert", UPSERT_SQL, resultSize, traceStart, null);
+      return member;
+    } catch (SQLException e) {
+      throw exTranslator.translate("upsert", UPSERT_SQL, e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
+  /**
+   * batchSize 마다 executeBatch()로 merge 를 전송한다.
+   */
+  @Override
+  public void upsertAll(Collection<Member> members) {
+    members.forEach(this::assignId);
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+    List<Member> batch = new ArrayList<>(Math.min(batchSize, members.size()));
+
+    try {
+      con = getConnection();
+      // 배치 중에 실패하면 남은 배치 상태를 알 수 없으므로 캐시하지 않고 매번 준비한다.
+      pstmt = con.prepareStatement(UPSERT_SQL);
+      for (Member member : members) {
+        pstmt.setString(1, member.getMemberId());
+        pstmt.setInt(2, member.getMoney());
+        pstmt.addBatch();
+        batch.add(member);
+
+        if (batch.size() == batchSize) {
+          pstmt.executeBatch();
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        pstmt.executeBatch();
+      }
+    } catch (BatchUpdateException e) {
+      List<String> failedIds = BatchSupport.failedKeys(batch, e, Member::getMemberId);
+      throw exTranslator.translate("upsertAll failedMemberIds=" + failedIds, UPSERT_SQL, e);
+    } catch (SQLException e) {
+      throw exTranslator.translate("upsertAll", UPSERT_SQL, e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
+  private void assignId(Member member) {
+    if (member.getMemberId() == null && idGenerator != null) {
+      member.setMemberId(idGenerator.nextId());
+    }
+  }
+
   @Override
   public Member findById(String memberId) {
-    String sql = "select * from member where member_id = ?";
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ?";
+    return findMember("findById", sql, memberId);
+  }
 
+  @Override
+  public Member findByIdForUpdate(String memberId) {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ? for update";
+    return findMember("findByIdForUpdate", sql, memberId);
+  }
+
+  @Override
+  public Optional<Member> findOptionalById(String memberId) {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ?";
+    return Optional.ofNullable(queryMember("findOptionalById", sql, memberId));
+  }
+
+  private Member findMember(String task, String sql, String memberId) {
+    Member member = queryMember(task, sql, memberId);
+    if (member == null) {
+      throw new NoSuchElementException("member not found memberId=" + memberId);
+    }
+    return member;
+  }
+
+  // 없으면 null
+  private Member queryMember(String task, String sql, String memberId) {
     Connection con = null;
     PreparedStatement pstmt = null;
     ResultSet rs = null;
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
 
       pstmt.setString(1, memberId);
       rs = pstmt.executeQuery();
       if (rs.next()) {
-        Member member = new Member();
-        member.setMemberId(rs.getString("member_id"));
-        member.setMoney(rs.getInt("money"));
-        return member;
-      } else {
-        throw new NoSuchElementException("member not found memberId=" + memberId);
+        return MemberRowMapper.INSTANCE.mapRow(rs, 0);
       }
+      return null;
     } catch (SQLException e) {
-      throw exTranslator.translate("findById", sql, e);
+      throw exTranslator.translate(task, sql, e);
     } finally {
       close(con, pstmt, rs);
     }
   }
 
+  /**
+   * in 절로 MAX_IN_LIST_SIZE 개씩 나눠서 조회한다.
+   */
+  @Override
+  public Map<String, Optional<Member>> findByIds(Collection<String> memberIds) {
+    Map<String, Optional<Member>> result = new LinkedHashMap<>();
+    for (String memberId : memberIds) {
+      result.put(memberId, Optional.empty());
+    }
+
+    List<String> ids = new ArrayList<>(result.keySet());
+    for (int from = 0; from < ids.size(); from += BatchSupport.MAX_IN_LIST_SIZE) {
+      List<String> chunk = ids.subList(from, Math.min(from + BatchSupport.MAX_IN_LIST_SIZE, ids.size()));
+      String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id in (" + BatchSupport.placeholders(chunk.size()) + ")";
+
+      Connection con = null;
+      PreparedStatement pstmt = null;
+      ResultSet rs = null;
+
+      try {
+        con = getConnection();
+        pstmt = statementCache.prepare(con, sql);
+        for (int i = 0; i < chunk.size(); i++) {
+          pstmt.setString(i + 1, chunk.get(i));
+        }
+        rs = pstmt.executeQuery();
+        int rowNum = 0;
+        while (rs.next()) {
+          Member member = MemberRowMapper.INSTANCE.mapRow(rs, rowNum++);
+          result.put(member.getMemberId(), Optional.of(member));
+        }
+      } catch (SQLException e) {
+        throw exTranslator.translate("findByIds", sql, e);
+      } finally {
+        close(con, pstmt, rs);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 전방향, 읽기 전용 ResultSet 으로 fetchSize 만큼씩 읽는다.
+   * 커넥션과 PreparedStatement 는 스트림을 모두 읽거나 닫을 때 정리한다.
+   */
+  @Override
+  public Stream<Member> streamAll(int fetchSize) {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member";
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+
+    try {
+      con = getConnection();
+      pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      pstmt.setFetchSize(fetchSize);
+      rs = pstmt.executeQuery();
+    } catch (SQLException e) {
+      close(con, pstmt, rs);
+      throw exTranslator.translate("streamAll", sql, e);
+    }
+
+    Connection streamCon = con;
+    PreparedStatement streamPstmt = pstmt;
+    ResultSet streamRs = rs;
+    return ResultSetStreams.stream(rs, MemberRowMapper.INSTANCE,
+            () -> close(streamCon, streamPstmt, streamRs), e -> exTranslator.translate("streamAll", sql, e));
+  }
+
   @Override
   public void update(String memberId, int money){
-    String sql = "update member set money=? where member_id=?";
+    String sql = "update member set money=?, version=version+1 where member_id=?";
 
     Connection con = null;
     PreparedStatement pstmt = null;
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
       pstmt.setInt(1, money);
       pstmt.setString(2, memberId);
+      long traceStart = tracer.start("update");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("update", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       throw exTranslator.translate("update", sql, e);
     } finally {
@@ -111,6 +367,114 @@ public class MemberRepositoryV4_2 implements MemberRepository {
     }
   }
 
+  /**
+   * 낙관적 락 - 조회한 version 이 그대로일 때만 변경한다.
+   * 그 사이 다른 트랜잭션이 변경했으면 OptimisticLockingFailureException
+   */
+  @Override
+  public void updateWithVersion(String memberId, int money, long version) {
+    String sql = "update member set money=?, version=version+1 where member_id=? and version=?";
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+
+    try {
+      con = getConnection();
+      pstmt = statementCache.prepare(con, sql);
+      pstmt.setInt(1, money);
+      pstmt.setString(2, memberId);
+      pstmt.setLong(3, version);
+      long traceStart = tracer.start("updateWithVersion");
+      int resultSize = pstmt.executeUpdate();
+      tracer.end("updateWithVersion", sql, resultSize, traceStart, null);
+      if (resultSize == 0) {
+        throw new OptimisticLockingFailureException("member version conflict memberId=" + memberId + ", version=" + version);
+      }
+    } catch (SQLException e) {
+      throw exTranslator.translate("updateWithVersion", sql, e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
+  @Override
+  public int incrementMoney(String memberId, int amount) {
+    String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+    return executeMoneyUpdate("incrementMoney", sql, memberId, amount, false);
+  }
+
+  @Override
+  public int decrementMoney(String memberId, int amount, boolean nonNegative) {
+    String sql = nonNegative
+            ? "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?"
+            : "update member set money = money - ?, version = version + 1 where member_id = ?";
+    return executeMoneyUpdate("decrementMoney", sql, memberId, amount, nonNegative);
+  }
+
+  private int executeMoneyUpdate(String operation, String sql, String memberId, int amount, boolean nonNegative) {
+    Connection con = null;
+    PreparedStatement pstmt = null;
+
+    try {
+      con = getConnection();
+      pstmt = statementCache.prepare(con, sql);
+      pstmt.setInt(1, amount);
+      pstmt.setString(2, memberId);
+      if (nonNegative) {
+        pstmt.setInt(3, amount);
+      }
+      long traceStart = tracer.start(operation);
+      int resultSize = pstmt.executeUpdate();
+      tracer.end(operation, sql, resultSize, traceStart, null);
+      return resultSize;
+    } catch (SQLException e) {
+      throw exTranslator.translate(operation, sql, e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
+  /**
+   * batchSize 마다 executeBatch()로 한 번에 전송한다.
+   * 출금(음수)만 잔액 조건을 검사하도록 where 절에 (? >= 0 or money + ? >= 0)을 둔다.
+   */
+  @Override
+  public int[] addMoneyAll(List<MoneyDelta> deltas) {
+    String sql = "update member set money = money + ?, version = version + 1 where member_id = ? and (? >= 0 or money + ? >= 0)";
+
+    Connection con = null;
+    PreparedStatement pstmt = null;
+    int[] result = new int[deltas.size()];
+
+    try {
+      con = getConnection();
+      // 배치 중에 실패하면 남은 배치 상태를 알 수 없으므로 캐시하지 않고 매번 준비한다.
+      pstmt = con.prepareStatement(sql);
+      long traceStart = tracer.start("addMoneyAll");
+      int batchStart = 0;
+      for (int i = 0; i < deltas.size(); i++) {
+        MoneyDelta delta = deltas.get(i);
+        pstmt.setInt(1, delta.amount());
+        pstmt.setString(2, delta.memberId());
+        pstmt.setInt(3, delta.amount());
+        pstmt.setInt(4, delta.amount());
+        pstmt.addBatch();
+
+        if (i + 1 - batchStart == batchSize || i == deltas.size() - 1) {
+          int[] counts = pstmt.executeBatch();
+          System.arraycopy(counts, 0, result, batchStart, counts.length);
+          batchStart = i + 1;
+        }
+      }
+      tracer.end("addMoneyAll", sql, deltas.size(), traceStart, null);
+      return result;
+    } catch (SQLException e) {
+      throw exTranslator.translate("addMoneyAll", sql, e);
+    } finally {
+      close(con, pstmt, null);
+    }
+  }
+
   @Override
   public void delete(String memberId) {
     String sql = "delete from member where member_id=?";
@@ -120,10 +484,11 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
     try {
       con = getConnection();
-      pstmt = con.prepareStatement(sql);
+      pstmt = statementCache.prepare(con, sql);
       pstmt.setString(1, memberId);
+      long traceStart = tracer.start("delete");
       int resultSize = pstmt.executeUpdate();
-      log.info("resultSize={}", resultSize);
+      tracer.end("delete", sql, resultSize, traceStart, null);
     } catch (SQLException e) {
       throw exTranslator.translate("delete", sql, e);
     } finally {
@@ -133,7 +498,8 @@ public class MemberRepositoryV4_2 implements MemberRepository {
 
   private void close(Connection con, Statement stmt, ResultSet rs) {
     JdbcUtils.closeResultSet(rs);
-    JdbcUtils.closeStatement(stmt);
+    // 트랜잭션 동안 캐시된 PreparedStatement 는 닫지 않고 재사용한다.
+    statementCache.release(con, stmt);
     // 주의! - 트랜잭션 동기화를 사용하려면 DataSourceUtils를 사용해야 한다.
     // con.close()을 사용해서 직접 닫아버리면 커넥션이 유지되지 않는 무넺가 발생한다. 이 커넥션은 이후 로직은 물론이고, 트랜잭션 종료(커밋, 롤백)할 때까지 살아있어야 한다.
     // DataSourceUtils.releaseConnection()을 사용하면 커넥션을 바로 닫는 것이 아니라 트랜잭션을 사용하기 위해 동기화된 커넥션은 커넥션을 닫지 않고 그대로 유지해준다.
@@ -2,10 +2,27 @@ package oneny.jdbcspring.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.domain.MoneyDelta;
+import oneny.jdbcspring.repository.support.BatchSupport;
+import oneny.jdbcspring.repository.support.MemberIdGenerator;
+import oneny.jdbcspring.repository.support.MemberRowMapper;
+import oneny.jdbcspring.repository.support.ResultSetStreams;
+import oneny.jdbcspring.repository.support.SqlExceptionTranslators;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
 
 import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * JdbcTemplate 사
@@ -13,41 +30,224 @@ import javax.sql.DataSource;
 @Slf4j
 public class MemberRepositoryV5 implements MemberRepository {
 
+  // 긴 member_id 도 save 와 같은 예외로 실패하도록 길이 없이 캐스팅한다. (MemberRepositoryV4_2 참고)
+  private static final String UPSERT_SQL =
+          "merge into member m using (select cast(? as varchar) as member_id, cast(? as integer) as money) s " +
+          "on (m.member_id = s.member_id) " +
+          "when matched then update set money = s.money, version = m.version + 1 " +
+          "when not matched then insert (member_id, money) values (s.member_id, s.money)";
+
   private final JdbcTemplate template;
+  private int batchSize = BatchSupport.DEFAULT_BATCH_SIZE;
+  private MemberIdGenerator idGenerator;
 
   public MemberRepositoryV5(DataSource dataSource) {
     this.template = new JdbcTemplate(dataSource);
+    this.template.setExceptionTranslator(SqlExceptionTranslators.forDataSource(dataSource));
+  }
+
+  public void setBatchSize(int batchSize) {
+    BatchSupport.checkBatchSize(batchSize);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * 설정하면 memberId 가 없는 회원을 저장할 때 ID 를 만들어 넣는다.
+   * 중복 키 예외를 받고 다른 ID 로 다시 시도하지 않아도 된다.
+   */
+  public void setIdGenerator(MemberIdGenerator idGenerator) {
+    this.idGenerator = idGenerator;
   }
 
   @Override
   public Member save(Member member) {
     String sql = "insert into member(member_id, money) values (?, ?)";
+    assignId(member);
     template.update(sql, member.getMemberId(), member.getMoney());
     return member;
   }
 
+  /**
+   * batchSize 단위로 나눠서 batchUpdate 한다.
+   * 실패하면 해당 배치에서 실패한 memberId 를 메시지에 담아 JdbcTemplate 의 예외 변환기로 다시 변환한다.
+   */
+  @Override
+  public void saveAll(Collection<Member> members) {
+    String sql = "insert into member(member_id, money) values (?, ?)";
+    members.forEach(this::assignId);
+    List<Member> list = new ArrayList<>(members);
+
+    for (int from = 0; from < list.size(); from += batchSize) {
+      batchUpdate("saveAll", sql, list.subList(from, Math.min(from + batchSize, list.size())));
+    }
+  }
+
+  /**
+   * merge 한 번으로 insert 또는 update 한다. 있으면 version 을 1 증가시킨다.
+   */
+  @Override
+  public Member upsert(Member member) {
+    assignId(member);
+    template.update(UPSERT_SQL, member.getMemberId(), member.getMoney());
+    return member;
+  }
+
+  /**
+   * batchSize 단위로 나눠서 merge 를 batchUpdate 한다.
+   * 실패하면 saveAll 처럼 해당 배치에서 실패한 memberId 를 메시지에 담는다.
+   */
+  @Override
+  public void upsertAll(Collection<Member> members) {
+    members.forEach(this::assignId);
+    List<Member> list = new ArrayList<>(members);
+
+    for (int from = 0; from < list.size(); from += batchSize) {
+      batchUpdate("upsertAll", UPSERT_SQL, list.subList(from, Math.min(from + batchSize, list.size())));
+    }
+  }
+
+  // (member_id, money) 배치 하나를 실행한다.
+  private void batchUpdate(String task, String sql, List<Member> batch) {
+    try {
+      template.batchUpdate(sql, batch, batch.size(), (ps, member) -> {
+        ps.setString(1, member.getMemberId());
+        ps.setInt(2, member.getMoney());
+      });
+    } catch (DataAccessException e) {
+      BatchUpdateException batchEx = BatchSupport.findBatchUpdateException(e);
+      if (batchEx == null) {
+        throw e;
+      }
+      List<String> failedIds = BatchSupport.failedKeys(batch, batchEx, Member::getMemberId);
+      DataAccessException translated = template.getExceptionTranslator()
+              .translate(task + " failedMemberIds=" + failedIds, sql, batchEx);
+      throw translated != null ? translated : e;
+    }
+  }
+
+  private void assignId(Member member) {
+    if (member.getMemberId() == null && idGenerator != null) {
+      member.setMemberId(idGenerator.nextId());
+    }
+  }
+
   @Override
   public Member findById(String memberId) {
-    String sql = "select * from member where member_id = ?";
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ?";
+
+    return template.queryForObject(sql, MemberRowMapper.INSTANCE, memberId);
+  }
+
+  /**
+   * queryForObject()는 없으면 EmptyResultDataAccessException 을 던지므로 query()로 목록을 받는다.
+   */
+  @Override
+  public Optional<Member> findOptionalById(String memberId) {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ?";
 
-    return template.queryForObject(sql, mememberRowMapper(), memberId);
+    return template.query(sql, MemberRowMapper.INSTANCE, memberId).stream().findFirst();
   }
 
-  private RowMapper<Member> mememberRowMapper() {
-    return (rs, rowNum) -> {
-      Member member = new Member();
-      member.setMemberId(rs.getString("member_id"));
-      member.setMoney(rs.getInt("money"));
-      return member;
-    };
+  @Override
+  public Member findByIdForUpdate(String memberId) {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ? for update";
+
+    return template.queryForObject(sql, MemberRowMapper.INSTANCE, memberId);
+  }
+
+  /**
+   * in 절로 MAX_IN_LIST_SIZE 개씩 나눠서 조회한다.
+   */
+  @Override
+  public Map<String, Optional<Member>> findByIds(Collection<String> memberIds) {
+    Map<String, Optional<Member>> result = new LinkedHashMap<>();
+    for (String memberId : memberIds) {
+      result.put(memberId, Optional.empty());
+    }
+
+    List<String> ids = new ArrayList<>(result.keySet());
+    for (int from = 0; from < ids.size(); from += BatchSupport.MAX_IN_LIST_SIZE) {
+      List<String> chunk = ids.subList(from, Math.min(from + BatchSupport.MAX_IN_LIST_SIZE, ids.size()));
+      String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id in (" + BatchSupport.placeholders(chunk.size()) + ")";
+
+      for (Member member : template.query(sql, MemberRowMapper.INSTANCE, chunk.toArray())) {
+        result.put(member.getMemberId(), Optional.of(member));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * JdbcTemplate.queryForStream()은 스트림을 닫을 때 커넥션을 반환한다.
+   * 끝까지 읽었을 때도 반환하도록 ResultSetStreams.closeOnExhaustion()으로 감싼다.
+   */
+  @Override
+  public Stream<Member> streamAll(int fetchSize) {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member";
+
+    Stream<Member> stream = template.queryForStream(con -> {
+      PreparedStatement pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      pstmt.setFetchSize(fetchSize);
+      return pstmt;
+    }, MemberRowMapper.INSTANCE);
+    return ResultSetStreams.closeOnExhaustion(stream);
   }
 
   @Override
   public void update(String memberId, int money) {
-    String sql = "update member set money=? where member_id=?";
+    String sql = "update member set money=?, version=version+1 where member_id=?";
     template.update(sql, money, memberId); // 업데이트된 로우 수 반환
   }
 
+  /**
+   * 낙관적 락 - 조회한 version 이 그대로일 때만 변경한다.
+   * 그 사이 다른 트랜잭션이 변경했으면 OptimisticLockingFailureException
+   */
+  @Override
+  public void updateWithVersion(String memberId, int money, long version) {
+    String sql = "update member set money=?, version=version+1 where member_id=? and version=?";
+    if (template.update(sql, money, memberId, version) == 0) {
+      throw new OptimisticLockingFailureException("member version conflict memberId=" + memberId + ", version=" + version);
+    }
+  }
+
+  @Override
+  public int incrementMoney(String memberId, int amount) {
+    String sql = "update member set money = money + ?, version = version + 1 where member_id = ?";
+    return template.update(sql, amount, memberId);
+  }
+
+  @Override
+  public int decrementMoney(String memberId, int amount, boolean nonNegative) {
+    if (nonNegative) {
+      String sql = "update member set money = money - ?, version = version + 1 where member_id = ? and money >= ?";
+      return template.update(sql, amount, memberId, amount);
+    }
+    String sql = "update member set money = money - ?, version = version + 1 where member_id = ?";
+    return template.update(sql, amount, memberId);
+  }
+
+  /**
+   * batchSize 단위로 batchUpdate 한다. 출금(음수)만 잔액 조건을 검사한다.
+   */
+  @Override
+  public int[] addMoneyAll(List<MoneyDelta> deltas) {
+    String sql = "update member set money = money + ?, version = version + 1 where member_id = ? and (? >= 0 or money + ? >= 0)";
+    int[] result = new int[deltas.size()];
+
+    for (int from = 0; from < deltas.size(); from += batchSize) {
+      List<MoneyDelta> batch = deltas.subList(from, Math.min(from + batchSize, deltas.size()));
+      int[][] counts = template.batchUpdate(sql, batch, batch.size(), (ps, delta) -> {
+        ps.setInt(1, delta.amount());
+        ps.setString(2, delta.memberId());
+        ps.setInt(3, delta.amount());
+        ps.setInt(4, delta.amount());
+      });
+      System.arraycopy(counts[0], 0, result, from, counts[0].length);
+    }
+    return result;
+  }
+
   @Override
   public void delete(String memberId) {
     String sql = "delete from member where member_id=?";
@@ -0,0 +1,231 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.support.MemberRowMapper;
+import oneny.jdbcspring.repository.support.ResultSetStreams;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 잔액 분할
+ * 입금이 몰리는 회원은 member 로우 하나의 락을 모든 update 가 기다린다.
+ * 잔액을 member.money 와 member_balance_stripe 의 stripes 개 로우로 나눠 저장하고,
+ * incrementMoney/decrementMoney 는 스레드마다 다른 stripe 로우만 변경해서 락 경합을 나눈다.
+ * 잔액은 member.money + 모든 stripe 의 합이다.
+ *
+ * 출금할 stripe 의 잔액이 부족하면 member 로우와 모든 stripe 를 잠근 후 합계로 검사하고 다른 stripe 에서 빌려온다.
+ * update(절대값)도 모든 로우를 잠그고 member.money 에 합친 후 stripe 를 0 으로 만든다.
+ * 여러 로우를 바꾸는 작업은 TransactionTemplate(REQUIRED)으로 실행하므로 호출한 쪽의 트랜잭션이 있으면 참여한다.
+ *
+ * stripe 로우도 변경할 때마다 자기 version 을 1 증가시킨다. 회원의 version 은 member.version + 모든 stripe 의 version 이다.
+ * updateWithVersion 은 모든 로우를 잠그고 이 합계를 비교하므로 stripe 에만 입금된 변경도 충돌로 잡는다.
+ */
+@Slf4j
+public class StripedMemberRepository implements MemberRepository {
+
+  private final JdbcTemplate template;
+  private final TransactionTemplate txTemplate;
+  private final int stripes;
+
+  public StripedMemberRepository(DataSource dataSource, PlatformTransactionManager transactionManager, int stripes) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be positive stripes=" + stripes);
+    }
+    this.template = new JdbcTemplate(dataSource);
+    this.txTemplate = new TransactionTemplate(transactionManager);
+    this.stripes = stripes;
+  }
+
+  @Override
+  public Member save(Member member) {
+    String sql = "insert into member(member_id, money) values (?, ?)";
+    template.update(sql, member.getMemberId(), member.getMoney());
+    return member;
+  }
+
+  // member 로우마다 stripe 합계를 더한다. 컬럼 순서는 MemberRowMapper.COLUMNS 와 같다.
+  private static final String SELECT_SQL = "select m.member_id, " +
+          "m.money + coalesce((select sum(s.money) from member_balance_stripe s where s.member_id = m.member_id), 0) as money, " +
+          "m.version + coalesce((select sum(s.version) from member_balance_stripe s where s.member_id = m.member_id), 0) as version " +
+          "from member m";
+  private static final String FIND_BY_ID_SQL = SELECT_SQL + " where m.member_id = ?";
+
+  @Override
+  public Member findById(String memberId) {
+    return template.queryForObject(FIND_BY_ID_SQL, MemberRowMapper.INSTANCE, memberId);
+  }
+
+  @Override
+  public Optional<Member> findOptionalById(String memberId) {
+    return template.query(FIND_BY_ID_SQL, MemberRowMapper.INSTANCE, memberId).stream().findFirst();
+  }
+
+  /**
+   * 전방향, 읽기 전용 ResultSet 으로 fetchSize 만큼씩 읽는다. 잠그지 않으므로 읽는 동안의 입금은 보이지 않을 수 있다.
+   */
+  @Override
+  public Stream<Member> streamAll(int fetchSize) {
+    Stream<Member> stream = template.queryForStream(con -> {
+      PreparedStatement pstmt = con.prepareStatement(SELECT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      pstmt.setFetchSize(fetchSize);
+      return pstmt;
+    }, MemberRowMapper.INSTANCE);
+    return ResultSetStreams.closeOnExhaustion(stream);
+  }
+
+  @Override
+  public Member findByIdForUpdate(String memberId) {
+    return txTemplate.execute(status -> {
+      Member member = template.queryForObject("select " + MemberRowMapper.COLUMNS + " from member where member_id = ? for update",
+              MemberRowMapper.INSTANCE, memberId);
+      for (StripeRow stripe : lockStripes(memberId)) {
+        member.setMoney(member.getMoney() + stripe.money());
+        member.setVersion(member.getVersion() + stripe.version());
+      }
+      return member;
+    });
+  }
+
+  /**
+   * 모든 로우를 잠그고 stripe 를 member.money 에 합친다.
+   */
+  @Override
+  public void update(String memberId, int money) {
+    txTemplate.executeWithoutResult(status -> {
+      template.query("select member_id from member where member_id = ? for update", rs -> {}, memberId);
+      lockStripes(memberId);
+      template.update("update member set money=?, version=version+1 where member_id=?", money, memberId);
+      template.update("update member_balance_stripe set money = 0 where member_id = ?", memberId);
+    });
+  }
+
+  /**
+   * 모든 로우를 잠그고 member.version + stripe version 합계가 조회한 version 과 같을 때만 member.money 에 합친다.
+   * 합친 후 stripe 의 money, version 을 0 으로 만들고 member.version 을 version + 1 로 바꾼다. (합계는 항상 증가한다)
+   */
+  @Override
+  public void updateWithVersion(String memberId, int money, long version) {
+    txTemplate.executeWithoutResult(status -> {
+      List<Long> base = template.queryForList("select version from member where member_id = ? for update",
+              Long.class, memberId);
+      long current = base.isEmpty() ? -1 : base.get(0);
+      for (StripeRow stripe : lockStripes(memberId)) {
+        current += stripe.version();
+      }
+      if (base.isEmpty() || current != version) {
+        throw new OptimisticLockingFailureException("member version conflict memberId=" + memberId + ", version=" + version);
+      }
+      template.update("update member set money=?, version=? where member_id=?", money, version + 1, memberId);
+      template.update("update member_balance_stripe set money = 0, version = 0 where member_id = ?", memberId);
+    });
+  }
+
+  /**
+   * 현재 스레드의 stripe 에 더한다. stripe 로우가 없으면 회원이 있을 때만 만든다.
+   */
+  @Override
+  public int incrementMoney(String memberId, int amount) {
+    String updateSql = "update member_balance_stripe set money = money + ?, version = version + 1 where member_id = ? and stripe = ?";
+    String insertSql = "insert into member_balance_stripe(member_id, stripe, money, version) " +
+            "select member_id, ?, ?, 1 from member where member_id = ?";
+
+    int stripe = currentStripe();
+    if (template.update(updateSql, amount, memberId, stripe) == 1) {
+      return 1;
+    }
+    try {
+      return template.update(insertSql, stripe, amount, memberId);
+    } catch (DuplicateKeyException e) {
+      // 다른 스레드가 먼저 만들었다.
+      return template.update(updateSql, amount, memberId, stripe);
+    }
+  }
+
+  @Override
+  public int decrementMoney(String memberId, int amount, boolean nonNegative) {
+    if (!nonNegative) {
+      return incrementMoney(memberId, -amount);
+    }
+
+    String sql = "update member_balance_stripe set money = money - ?, version = version + 1 " +
+            "where member_id = ? and stripe = ? and money >= ?";
+    if (template.update(sql, amount, memberId, currentStripe(), amount) == 1) {
+      return 1;
+    }
+    return borrow(memberId, amount);
+  }
+
+  /**
+   * member 로우, stripe 로우 순서로 잠그고 합계가 충분하면 stripe 에서 먼저, 모자라면 member.money 에서 뺀다.
+   */
+  private int borrow(String memberId, int amount) {
+    Integer result = txTemplate.execute(status -> {
+      List<Integer> base = template.queryForList("select money from member where member_id = ? for update",
+              Integer.class, memberId);
+      if (base.isEmpty()) {
+        return 0;
+      }
+      List<StripeRow> lockedStripes = lockStripes(memberId);
+      long total = base.get(0);
+      for (StripeRow stripe : lockedStripes) {
+        total += stripe.money();
+      }
+      if (total < amount) {
+        return 0;
+      }
+
+      int remaining = amount;
+      for (StripeRow stripe : lockedStripes) {
+        if (remaining == 0) {
+          break;
+        }
+        int take = Math.min(stripe.money(), remaining);
+        if (take > 0) {
+          template.update("update member_balance_stripe set money = money - ?, version = version + 1 where member_id = ? and stripe = ?",
+                  take, memberId, stripe.stripe());
+          remaining -= take;
+        }
+      }
+      if (remaining > 0) {
+        template.update("update member set money = money - ?, version = version + 1 where member_id = ?", remaining, memberId);
+      }
+      return 1;
+    });
+    return result == null ? 0 : result;
+  }
+
+  // 교착 상태를 막기 위해 항상 stripe 순서로 잠근다.
+  private List<StripeRow> lockStripes(String memberId) {
+    String sql = "select stripe, money, version from member_balance_stripe where member_id = ? order by stripe for update";
+    return template.query(sql, (rs, rowNum) -> new StripeRow(rs.getInt("stripe"), rs.getInt("money"), rs.getLong("version")), memberId);
+  }
+
+  private int currentStripe() {
+    return (int) (Thread.currentThread().getId() % stripes);
+  }
+
+  @Override
+  public void delete(String memberId) {
+    txTemplate.executeWithoutResult(status -> {
+      // 다른 쓰기와 같은 순서(member -> stripe)로 잠가야 교착 상태가 생기지 않는다.
+      template.query("select member_id from member where member_id = ? for update", rs -> {}, memberId);
+      lockStripes(memberId);
+      template.update("delete from member_balance_stripe where member_id=?", memberId);
+      template.update("delete from member where member_id=?", memberId);
+    });
+  }
+
+  private record StripeRow(int stripe, int money, long version) {
+  }
+}
@@ -0,0 +1,60 @@
+package oneny.jdbcspring.repository.support;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * JDBC 배치 공통 기능
+ * 여러 건을 한 번에 처리할 때 배치 크기, in 절 크기를 나누는 기준과 실패 로우 확인을 담당한다.
+ * 배치 실패 시 BatchUpdateException 의 updateCounts 로 실패한 로우를 찾는다.
+ * H2 처럼 실패 후에도 나머지를 실행하는 드라이버는 EXECUTE_FAILED 로 표시하고,
+ * 실패 지점에서 멈추는 드라이버는 updateCounts 가 배치보다 짧으므로 그 이후 로우도 실패로 본다.
+ */
+public abstract class BatchSupport {
+
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+  public static final int MAX_IN_LIST_SIZE = 1000;
+
+  public static <T, K> List<K> failedKeys(List<T> batch, BatchUpdateException e, Function<T, K> keyExtractor) {
+    int[] updateCounts = e.getUpdateCounts();
+    if (updateCounts == null) {
+      updateCounts = new int[0];
+    }
+
+    List<K> failed = new ArrayList<>();
+    for (int i = 0; i < batch.size(); i++) {
+      if (i >= updateCounts.length || updateCounts[i] == Statement.EXECUTE_FAILED) {
+        failed.add(keyExtractor.apply(batch.get(i)));
+      }
+    }
+    return failed;
+  }
+
+  public static BatchUpdateException findBatchUpdateException(Throwable ex) {
+    Throwable cause = ex;
+    while (cause != null) {
+      if (cause instanceof BatchUpdateException batchEx) {
+        return batchEx;
+      }
+      cause = cause.getCause();
+    }
+    return null;
+  }
+
+  /**
+   * in (?, ?, ...) 에 들어갈 "?, ?, ..." 을 만든다.
+   */
+  public static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  public static void checkBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive batchSize=" + batchSize);
+    }
+  }
+}
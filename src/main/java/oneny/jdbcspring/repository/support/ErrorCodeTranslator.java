@@ -0,0 +1,124 @@
+package oneny.jdbcspring.repository.support;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.CannotSerializeTransactionException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PermissionDeniedDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.InvalidResultSetAccessException;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLErrorCodes;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 에러 코드 -> 예외 종류 표를 만들 때 한 번 만들어 두고, 변환할 때는 HashMap 조회 한 번으로 예외를 만든다.
+ * 커넥션(데이터베이스 메타데이터)에 접근하지 않는다.
+ * 표에 없는 에러 코드는 같은 SQLErrorCodes 로 만든 SQLErrorCodeSQLExceptionTranslator 에 맡긴다. (SQLState 로 변환 등)
+ */
+public class ErrorCodeTranslator implements SQLExceptionTranslator {
+
+  enum Category {
+    BAD_SQL_GRAMMAR,
+    INVALID_RESULT_SET_ACCESS,
+    DUPLICATE_KEY,
+    DATA_INTEGRITY_VIOLATION,
+    PERMISSION_DENIED,
+    DATA_ACCESS_RESOURCE_FAILURE,
+    TRANSIENT_DATA_ACCESS_RESOURCE,
+    CANNOT_ACQUIRE_LOCK,
+    DEADLOCK_LOSER,
+    CANNOT_SERIALIZE_TRANSACTION
+  }
+
+  private final String databaseProductName;
+  private final Map<Integer, Category> categories = new HashMap<>();
+  private final SQLExceptionTranslator fallback;
+
+  public ErrorCodeTranslator(SQLErrorCodes errorCodes) {
+    this.databaseProductName = errorCodes.getDatabaseProductName();
+    this.fallback = new SQLErrorCodeSQLExceptionTranslator(errorCodes);
+    // useSqlStateForTranslation 인 DB(PostgreSQL 등)는 코드 목록이 SQLState 다. (23505 처럼 숫자여도 에러 코드가 아니다)
+    // 표를 만들지 않고 모두 fallback 에 맡긴다.
+    if (errorCodes.isUseSqlStateForTranslation()) {
+      return;
+    }
+    // SQLErrorCodeSQLExceptionTranslator 와 같은 우선순위 - 먼저 등록한 종류가 이긴다.
+    register(errorCodes.getBadSqlGrammarCodes(), Category.BAD_SQL_GRAMMAR);
+    register(errorCodes.getInvalidResultSetAccessCodes(), Category.INVALID_RESULT_SET_ACCESS);
+    register(errorCodes.getDuplicateKeyCodes(), Category.DUPLICATE_KEY);
+    register(errorCodes.getDataIntegrityViolationCodes(), Category.DATA_INTEGRITY_VIOLATION);
+    register(errorCodes.getPermissionDeniedCodes(), Category.PERMISSION_DENIED);
+    register(errorCodes.getDataAccessResourceFailureCodes(), Category.DATA_ACCESS_RESOURCE_FAILURE);
+    register(errorCodes.getTransientDataAccessResourceCodes(), Category.TRANSIENT_DATA_ACCESS_RESOURCE);
+    register(errorCodes.getCannotAcquireLockCodes(), Category.CANNOT_ACQUIRE_LOCK);
+    register(errorCodes.getDeadlockLoserCodes(), Category.DEADLOCK_LOSER);
+    register(errorCodes.getCannotSerializeTransactionCodes(), Category.CANNOT_SERIALIZE_TRANSACTION);
+  }
+
+  private void register(String[] codes, Category category) {
+    for (String code : codes) {
+      try {
+        categories.putIfAbsent(Integer.parseInt(code.trim()), category);
+      } catch (NumberFormatException e) {
+        // 에러 코드는 정수다. 잘못 적힌 코드는 표에 넣지 않고 fallback 이 처리한다.
+      }
+    }
+  }
+
+  public String getDatabaseProductName() {
+    return databaseProductName;
+  }
+
+  @Override
+  public DataAccessException translate(String task, String sql, SQLException ex) {
+    SQLException sqlEx = ex;
+    // SQLErrorCodeSQLExceptionTranslator 처럼 배치 예외는 원인 예외의 코드로 변환한다.
+    if (sqlEx instanceof BatchUpdateException && sqlEx.getNextException() != null) {
+      SQLException nestedSqlEx = sqlEx.getNextException();
+      if (nestedSqlEx.getErrorCode() > 0 || nestedSqlEx.getSQLState() != null) {
+        sqlEx = nestedSqlEx;
+      }
+    }
+
+    Category category = categories.get(sqlEx.getErrorCode());
+    if (category == null) {
+      return fallback.translate(task, sql, ex);
+    }
+
+    String msg = task + "; " + (sql != null ? "SQL [" + sql + "]; " : "") + ex.getMessage();
+    switch (category) {
+      case BAD_SQL_GRAMMAR:
+        return new BadSqlGrammarException(task, sql != null ? sql : "", sqlEx);
+      case INVALID_RESULT_SET_ACCESS:
+        return new InvalidResultSetAccessException(task, sql != null ? sql : "", sqlEx);
+      case DUPLICATE_KEY:
+        return new DuplicateKeyException(msg, sqlEx);
+      case DATA_INTEGRITY_VIOLATION:
+        return new DataIntegrityViolationException(msg, sqlEx);
+      case PERMISSION_DENIED:
+        return new PermissionDeniedDataAccessException(msg, sqlEx);
+      case DATA_ACCESS_RESOURCE_FAILURE:
+        return new DataAccessResourceFailureException(msg, sqlEx);
+      case TRANSIENT_DATA_ACCESS_RESOURCE:
+        return new TransientDataAccessResourceException(msg, sqlEx);
+      case CANNOT_ACQUIRE_LOCK:
+        return new CannotAcquireLockException(msg, sqlEx);
+      case DEADLOCK_LOSER:
+        return new DeadlockLoserDataAccessException(msg, sqlEx);
+      case CANNOT_SERIALIZE_TRANSACTION:
+        return new CannotSerializeTransactionException(msg, sqlEx);
+      default:
+        return fallback.translate(task, sql, ex);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package oneny.jdbcspring.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * hi/lo ID 할당
+ * 시퀀스 값(hi) 하나로 [hi * blockSize, (hi + 1) * blockSize) 범위를 예약하고 그 안의 ID 는 메모리에서 나눠준다.
+ * 시퀀스는 노드(JVM)들이 공유하므로 다른 노드와 범위가 겹치지 않고, DB 접근은 blockSize 개마다 한 번이다.
+ * 예약한 범위를 다 쓰지 못하고 종료하면 남은 ID 는 버려진다. (ID 에 빈 곳이 생길 수 있다)
+ *
+ * memberId 는 varchar(10)이므로 prefix + 36진수로 만든다. prefix 가 한 글자면 36^9 개까지 쓸 수 있다.
+ */
+@Slf4j
+public class HiLoMemberIdGenerator implements MemberIdGenerator {
+
+  public static final String DEFAULT_SEQUENCE = "member_id_seq";
+  public static final int MAX_ID_LENGTH = 10;
+
+  private final JdbcTemplate template;
+  private final String nextValueSql;
+  private final int blockSize;
+  private final String prefix;
+
+  private volatile Block block = new Block(0, 0);
+
+  public HiLoMemberIdGenerator(DataSource dataSource, int blockSize, String prefix) {
+    this(dataSource, DEFAULT_SEQUENCE, blockSize, prefix);
+  }
+
+  public HiLoMemberIdGenerator(DataSource dataSource, String sequenceName, int blockSize, String prefix) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be positive blockSize=" + blockSize);
+    }
+    if (prefix.length() >= MAX_ID_LENGTH) {
+      throw new IllegalArgumentException("prefix is too long prefix=" + prefix);
+    }
+    this.template = new JdbcTemplate(dataSource);
+    this.nextValueSql = "select next value for " + sequenceName;
+    this.blockSize = blockSize;
+    this.prefix = prefix;
+  }
+
+  @Override
+  public String nextId() {
+    while (true) {
+      Block current = block;
+      long id = current.next.getAndIncrement();
+      if (id < current.end) {
+        return format(id);
+      }
+      // 범위를 다 썼으면 한 스레드만 새 범위를 예약하고 나머지는 새 범위에서 다시 꺼낸다.
+      synchronized (this) {
+        if (block == current) {
+          block = reserve();
+        }
+      }
+    }
+  }
+
+  private Block reserve() {
+    Long hi = template.queryForObject(nextValueSql, Long.class);
+    long start = Math.multiplyExact(hi, (long) blockSize);
+    log.debug("reserve member id block start={}, size={}", start, blockSize);
+    return new Block(start, start + blockSize);
+  }
+
+  private String format(long id) {
+    String memberId = prefix + Long.toString(id, Character.MAX_RADIX);
+    if (memberId.length() > MAX_ID_LENGTH) {
+      throw new IllegalStateException("member id space exhausted id=" + memberId);
+    }
+    return memberId;
+  }
+
+  private static class Block {
+    private final AtomicLong next;
+    private final long end;
+
+    Block(long start, long end) {
+      this.next = new AtomicLong(start);
+      this.end = end;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package oneny.jdbcspring.repository.support;
+
+/**
+ * 새 회원의 memberId 를 만든다. 만든 ID 는 다른 노드(JVM)와도 겹치지 않아야 한다.
+ */
+public interface MemberIdGenerator {
+
+  String nextId();
+}
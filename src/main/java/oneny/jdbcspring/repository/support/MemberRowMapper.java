@@ -0,0 +1,34 @@
+package oneny.jdbcspring.repository.support;
+
+import oneny.jdbcspring.domain.Member;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * member 로우 매핑
+ * select * 대신 COLUMNS 순서로 필요한 컬럼만 조회하고, 컬럼 이름 대신 위치(1, 2, 3)로 읽는다.
+ * 드라이버가 로우마다 컬럼 이름을 찾지 않아도 되고, 상태가 없으므로 하나를 공유한다.
+ */
+public final class MemberRowMapper implements RowMapper<Member> {
+
+  public static final MemberRowMapper INSTANCE = new MemberRowMapper();
+
+  /**
+   * 이 순서로 select 해야 한다. ex) "select " + COLUMNS + " from member where member_id = ?"
+   */
+  public static final String COLUMNS = "member_id, money, version";
+
+  private static final int MEMBER_ID = 1;
+  private static final int MONEY = 2;
+  private static final int VERSION = 3;
+
+  private MemberRowMapper() {
+  }
+
+  @Override
+  public Member mapRow(ResultSet rs, int rowNum) throws SQLException {
+    return new Member(rs.getString(MEMBER_ID), rs.getInt(MONEY), rs.getLong(VERSION));
+  }
+}
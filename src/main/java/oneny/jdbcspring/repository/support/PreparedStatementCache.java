@@ -0,0 +1,162 @@
+package oneny.jdbcspring.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 커넥션별 PreparedStatement 캐시 (LRU)
+ *
+ * DataSourceUtils 가 트랜잭션 동기화 매니저에 보관한 커넥션은 트랜잭션이 끝날 때까지 같은 커넥션이 사용된다.
+ * 이 캐시도 트랜잭션 동기화 매니저에 커넥션별로 PreparedStatement 를 보관해서 같은 SQL 을 다시 준비하지 않고 재사용한다.
+ * 트랜잭션이 끝나면(afterCompletion) 보관한 PreparedStatement 를 모두 닫는다. 커넥션을 닫기 전에 호출된다.
+ *
+ * 트랜잭션 동기화가 없으면 커넥션이 연산마다 닫히므로 캐시하지 않고 매번 준비한다.
+ */
+@Slf4j
+public class PreparedStatementCache {
+
+  public static final int DEFAULT_MAX_SIZE = 32;
+
+  private final int maxSize;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder uncached = new LongAdder();
+
+  public PreparedStatementCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public PreparedStatementCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public PreparedStatement prepare(Connection con, String sql) throws SQLException {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      uncached.increment();
+      return con.prepareStatement(sql);
+    }
+
+    Map<String, PreparedStatement> statements = statementsOf(con);
+    PreparedStatement pstmt = statements.get(sql);
+    if (pstmt != null && !pstmt.isClosed()) {
+      hits.increment();
+      pstmt.clearParameters();
+      return pstmt;
+    }
+
+    misses.increment();
+    pstmt = con.prepareStatement(sql);
+    statements.put(sql, pstmt);
+    return pstmt;
+  }
+
+  /**
+   * 캐시된 PreparedStatement 는 트랜잭션이 끝날 때 닫으므로 그대로 두고, 캐시되지 않은 것만 닫는다.
+   */
+  public void release(Connection con, Statement stmt) {
+    if (stmt == null) {
+      return;
+    }
+    Map<Connection, Map<String, PreparedStatement>> cached = boundStatements();
+    if (cached != null) {
+      Map<String, PreparedStatement> statements = cached.get(con);
+      if (statements != null && statements.containsValue(stmt)) {
+        return;
+      }
+    }
+    JdbcUtils.closeStatement(stmt);
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getUncachedCount() {
+    return uncached.sum();
+  }
+
+  public double getHitRate() {
+    long hit = hits.sum();
+    long total = hit + misses.sum();
+    return total == 0 ? 0 : (double) hit / total;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<Connection, Map<String, PreparedStatement>> boundStatements() {
+    return (Map<Connection, Map<String, PreparedStatement>>) TransactionSynchronizationManager.getResource(this);
+  }
+
+  private Map<String, PreparedStatement> statementsOf(Connection con) {
+    Map<Connection, Map<String, PreparedStatement>> cached = boundStatements();
+    if (cached == null) {
+      cached = new HashMap<>();
+      TransactionSynchronizationManager.bindResource(this, cached);
+    }
+
+    Map<String, PreparedStatement> statements = cached.get(con);
+    if (statements == null) {
+      statements = new LruStatements(maxSize);
+      cached.put(con, statements);
+      TransactionSynchronizationManager.registerSynchronization(new StatementSynchronization(con));
+    }
+    return statements;
+  }
+
+  private class StatementSynchronization implements TransactionSynchronization {
+
+    private final Connection con;
+
+    StatementSynchronization(Connection con) {
+      this.con = con;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      Map<Connection, Map<String, PreparedStatement>> cached = boundStatements();
+      if (cached == null) {
+        return;
+      }
+      Map<String, PreparedStatement> statements = cached.remove(con);
+      if (statements != null) {
+        statements.values().forEach(JdbcUtils::closeStatement);
+      }
+      if (cached.isEmpty()) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(PreparedStatementCache.this);
+      }
+    }
+  }
+
+  private static class LruStatements extends LinkedHashMap<String, PreparedStatement> {
+
+    private final int maxSize;
+
+    LruStatements(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+      if (size() > maxSize) {
+        JdbcUtils.closeStatement(eldest.getValue());
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package oneny.jdbcspring.repository.support;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ResultSet 을 한 로우씩 읽는 Stream
+ * 모두 읽었을 때와 Stream.close() 했을 때 중 먼저 일어난 시점에 한 번만 리소스를 정리한다.
+ * 중간에 읽기를 멈추는 경우(findFirst, limit 등)는 try-with-resources 로 닫아야 커넥션이 반환된다.
+ */
+public abstract class ResultSetStreams {
+
+  public static <T> Stream<T> stream(ResultSet rs, RowMapper<T> rowMapper, Runnable closer,
+                                     Function<SQLException, RuntimeException> exTranslator) {
+    Runnable closeOnce = once(closer);
+    Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+      private int rowNum = 0;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        try {
+          if (!rs.next()) {
+            closeOnce.run();
+            return false;
+          }
+          action.accept(rowMapper.mapRow(rs, rowNum++));
+          return true;
+        } catch (SQLException e) {
+          closeOnce.run();
+          throw exTranslator.apply(e);
+        }
+      }
+    };
+    return StreamSupport.stream(spliterator, false).onClose(closeOnce);
+  }
+
+  /**
+   * JdbcTemplate.queryForStream() 처럼 close()에서만 정리하는 Stream 을 모두 읽었을 때도 정리하도록 감싼다.
+   */
+  public static <T> Stream<T> closeOnExhaustion(Stream<T> stream) {
+    Runnable closeOnce = once(stream::close);
+    Iterator<T> iterator = stream.iterator();
+    Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        if (!iterator.hasNext()) {
+          closeOnce.run();
+          return false;
+        }
+        action.accept(iterator.next());
+        return true;
+      }
+    };
+    return StreamSupport.stream(spliterator, false).onClose(closeOnce);
+  }
+
+  private static Runnable once(Runnable closer) {
+    AtomicBoolean closed = new AtomicBoolean();
+    return () -> {
+      if (closed.compareAndSet(false, true)) {
+        closer.run();
+      }
+    };
+  }
+}
@@ -0,0 +1,118 @@
+package oneny.jdbcspring.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.support.SQLErrorCodes;
+import org.springframework.jdbc.support.SQLErrorCodesFactory;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 데이터베이스 제품마다 ErrorCodeTranslator 하나를 공유한다.
+ * SQLErrorCodeSQLExceptionTranslator(dataSource)는 처음 변환할 때 커넥션으로 메타데이터를 조회하는데,
+ * 예외가 발생하는 시점은 커넥션 풀이 이미 문제일 수 있다. forDataSource()는 리포지토리를 만들 때(시작 시점) 제품을 확인해 둔다.
+ * 시작 시점에 데이터베이스가 내려가 있으면 빈 에러 코드를 계속 쓰지 않도록, 제품을 확인할 때까지 변환할 때 다시 확인한다.
+ * forDatabase()는 제품 이름만으로 만들므로 커넥션이 전혀 필요 없다.
+ */
+@Slf4j
+public abstract class SqlExceptionTranslators {
+
+  public static final Duration DEFAULT_RETRY_INTERVAL = Duration.ofSeconds(5);
+
+  private static final Map<String, ErrorCodeTranslator> translators = new ConcurrentHashMap<>();
+
+  /**
+   * DataSource 의 제품은 SQLErrorCodesFactory 가 DataSource 마다 한 번만 조회하고 캐시한다. (실패하면 캐시하지 않는다)
+   * 제품을 확인하지 못하면 retryInterval 에 한 번씩만 다시 확인하고, 그 사이에는 SQLState 로만 변환한다.
+   */
+  public static SQLExceptionTranslator forDataSource(DataSource dataSource) {
+    return forDataSource(dataSource, DEFAULT_RETRY_INTERVAL);
+  }
+
+  static SQLExceptionTranslator forDataSource(DataSource dataSource, Duration retryInterval) {
+    ErrorCodeTranslator translator = resolve(dataSource);
+    if (translator != null) {
+      return translator;
+    }
+    log.warn("unknown database product, retry every {}ms", retryInterval.toMillis());
+    return new UnresolvedTranslator(dataSource, retryInterval.toNanos());
+  }
+
+  /**
+   * sql-error-codes.xml 의 이름 (H2, MySQL, PostgreSQL ...)
+   */
+  public static ErrorCodeTranslator forDatabase(String databaseName) {
+    SQLErrorCodes errorCodes = SQLErrorCodesFactory.getInstance().getErrorCodes(databaseName);
+    if (errorCodes.getDatabaseProductName() == null) {
+      // sql-error-codes.xml 에 없는 이름이면 공유하지 않는다. (SQLState 로만 변환)
+      log.warn("unknown database={}, error codes are not shared", databaseName);
+      return new ErrorCodeTranslator(errorCodes);
+    }
+    return shared(errorCodes);
+  }
+
+  // 메타데이터 조회에 실패하면 null
+  private static ErrorCodeTranslator resolve(DataSource dataSource) {
+    SQLErrorCodes errorCodes = SQLErrorCodesFactory.getInstance().getErrorCodes(dataSource);
+    return errorCodes.getDatabaseProductName() == null ? null : shared(errorCodes);
+  }
+
+  private static ErrorCodeTranslator shared(SQLErrorCodes errorCodes) {
+    return translators.computeIfAbsent(errorCodes.getDatabaseProductName(), name -> {
+      log.info("create error code translator database={}", name);
+      return new ErrorCodeTranslator(errorCodes);
+    });
+  }
+
+  /**
+   * 제품을 확인하면 그때부터 공유 ErrorCodeTranslator 에 맡긴다.
+   * 장애 중에 예외마다 커넥션을 얻으려고 하지 않도록 retryIntervalNanos 에 한 번씩만 확인한다.
+   */
+  static class UnresolvedTranslator implements SQLExceptionTranslator {
+
+    private final DataSource dataSource;
+    private final long retryIntervalNanos;
+    private final ErrorCodeTranslator fallback = new ErrorCodeTranslator(new SQLErrorCodes());
+
+    private volatile ErrorCodeTranslator resolved;
+    private volatile long nextAttemptNanos;
+
+    UnresolvedTranslator(DataSource dataSource, long retryIntervalNanos) {
+      this.dataSource = dataSource;
+      this.retryIntervalNanos = retryIntervalNanos;
+      this.nextAttemptNanos = System.nanoTime() + retryIntervalNanos;
+    }
+
+    @Override
+    public DataAccessException translate(String task, String sql, SQLException ex) {
+      ErrorCodeTranslator translator = resolved;
+      if (translator == null) {
+        translator = tryResolve();
+      }
+      return (translator != null ? translator : fallback).translate(task, sql, ex);
+    }
+
+    private ErrorCodeTranslator tryResolve() {
+      long now = System.nanoTime();
+      if (now - nextAttemptNanos < 0) {
+        return null;
+      }
+      nextAttemptNanos = now + retryIntervalNanos;
+      ErrorCodeTranslator translator = resolve(dataSource);
+      if (translator != null) {
+        log.info("resolved database product={}", translator.getDatabaseProductName());
+        resolved = translator;
+      }
+      return translator;
+    }
+
+    ErrorCodeTranslator getResolved() {
+      return resolved;
+    }
+  }
+}
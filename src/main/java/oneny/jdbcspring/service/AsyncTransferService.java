@@ -0,0 +1,190 @@
+package oneny.jdbcspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 비동기 이체
+ * MemberServiceV4.accountTransfer()를 전용 스레드 풀에서 실행하고 CompletableFuture 를 바로 반환한다.
+ * 호출한 스레드는 트랜잭션이 끝나거나 커넥션 풀에 자리가 날 때까지 기다리지 않는다.
+ *
+ * threads 는 커넥션 풀 크기(maximumPoolSize)와 맞춘다. 더 크면 작업 스레드들이 커넥션을 기다리며 멈춰 있게 된다.
+ * 대기열은 queueCapacity 로 제한하고, 가득 차면 RejectionPolicy 에 따라 처리한다.
+ * deadline 이 지나도록 대기열에 있던 작업은 실행하지 않고 TimeoutException 으로 완료한다.
+ * 이미 시작한 이체는 중간에 멈추지 않는다. (타임아웃으로 실패 처리했는데 커밋되는 일이 없도록)
+ */
+@Slf4j
+public class AsyncTransferService implements AutoCloseable {
+
+  public enum RejectionPolicy {
+    /**
+     * 바로 RejectedExecutionException 으로 완료한다. 호출한 스레드는 절대 기다리지 않는다.
+     */
+    FAIL_FAST,
+    /**
+     * 호출한 스레드에서 직접 실행한다. 호출하는 쪽의 속도를 늦추는 배압이 된다.
+     */
+    CALLER_RUNS,
+    /**
+     * 가장 오래 기다린 작업을 RejectedExecutionException 으로 완료하고 새 작업을 넣는다.
+     */
+    DISCARD_OLDEST
+  }
+
+  private final MemberServiceV4 memberService;
+  private final ThreadPoolExecutor executor;
+  private final long deadlineNanos;
+
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+
+  public AsyncTransferService(MemberServiceV4 memberService, int threads, int queueCapacity,
+                              RejectionPolicy rejectionPolicy, Duration deadline) {
+    if (threads < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("invalid executor size threads=" + threads + ", queueCapacity=" + queueCapacity);
+    }
+    this.memberService = memberService;
+    this.deadlineNanos = deadline.toNanos();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new TransferThreadFactory(), rejectionHandler(rejectionPolicy));
+  }
+
+  public CompletableFuture<Void> accountTransfer(String fromId, String toId, int money) {
+    TransferTask task = new TransferTask(System.nanoTime() + deadlineNanos,
+            () -> memberService.accountTransfer(fromId, toId, money));
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      task.future.completeExceptionally(e);
+    }
+    return task.future;
+  }
+
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  public long getExpiredCount() {
+    return expired.sum();
+  }
+
+  /**
+   * 대기열에 남은 작업까지 실행한 후 종료한다.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        log.warn("async transfer executor did not terminate, queueDepth={}", getQueueDepth());
+        failAll(executor.shutdownNow());
+      }
+    } catch (InterruptedException e) {
+      failAll(executor.shutdownNow());
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // 실행하지 못하고 버려진 작업의 future 를 완료해서 기다리는 쪽이 영원히 멈추지 않게 한다.
+  private void failAll(List<Runnable> tasks) {
+    for (Runnable task : tasks) {
+      if (task instanceof TransferTask transferTask) {
+        rejected.increment();
+        transferTask.future.completeExceptionally(new RejectedExecutionException("async transfer executor is shut down"));
+      }
+    }
+  }
+
+  private RejectedExecutionHandler rejectionHandler(RejectionPolicy rejectionPolicy) {
+    switch (rejectionPolicy) {
+      case FAIL_FAST:
+        return new ThreadPoolExecutor.AbortPolicy();
+      case CALLER_RUNS:
+        // ThreadPoolExecutor.CallerRunsPolicy 는 종료 후에 작업을 조용히 버리므로 future 가 완료되지 않는다.
+        return (task, pool) -> {
+          if (pool.isShutdown()) {
+            throw new RejectedExecutionException("async transfer executor is shut down");
+          }
+          task.run();
+        };
+      case DISCARD_OLDEST:
+        return (task, pool) -> {
+          if (pool.isShutdown()) {
+            throw new RejectedExecutionException("async transfer executor is shut down");
+          }
+          Runnable oldest = pool.getQueue().poll();
+          if (oldest instanceof TransferTask oldestTask) {
+            rejected.increment();
+            oldestTask.future.completeExceptionally(new RejectedExecutionException("discarded by newer transfer"));
+          }
+          pool.execute(task);
+        };
+      default:
+        throw new IllegalArgumentException("unknown rejectionPolicy=" + rejectionPolicy);
+    }
+  }
+
+  private class TransferTask implements Runnable {
+
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final long deadline;
+    private final Runnable transfer;
+
+    TransferTask(long deadline, Runnable transfer) {
+      this.deadline = deadline;
+      this.transfer = transfer;
+    }
+
+    @Override
+    public void run() {
+      // 호출한 쪽에서 취소했거나 이미 버려진 작업
+      if (future.isDone()) {
+        return;
+      }
+      if (System.nanoTime() - deadline > 0) {
+        expired.increment();
+        future.completeExceptionally(new TimeoutException("transfer expired in queue"));
+        return;
+      }
+      try {
+        transfer.run();
+        future.complete(null);
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static class TransferThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "async-transfer-" + sequence.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package oneny.jdbcspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.MoneyDelta;
+import oneny.jdbcspring.domain.Transfer;
+import oneny.jdbcspring.repository.MemberRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량 이체
+ * accountTransfer()를 반복하면 이체마다 트랜잭션을 열고 SQL 4번을 실행한다.
+ * transferAll()은 chunkSize 개씩 한 트랜잭션으로 묶고, 출금/입금을 money = money + ? 배치 하나로 전송한다.
+ *
+ * 청크 시작 시 세이브포인트를 만들고 배치 결과가 하나라도 실패(잔액 부족, 회원 없음, 예외)면 세이브포인트로 되돌린 후
+ * 이체마다 세이브포인트를 두고 하나씩 다시 실행한다. 실패한 이체만 되돌리고 결과에 담으며 나머지는 커밋한다.
+ * MemberServiceV4 와 같은 검증(toId 가 "ex"면 실패)을 DB 작업 전에 한다.
+ */
+@Slf4j
+public class BulkTransferService {
+
+  public static final int DEFAULT_CHUNK_SIZE = 500;
+
+  private final TransactionTemplate txTemplate;
+  private final MemberRepository memberRepository;
+  private final int chunkSize;
+
+  public BulkTransferService(PlatformTransactionManager transactionManager, MemberRepository memberRepository) {
+    this(transactionManager, memberRepository, DEFAULT_CHUNK_SIZE);
+  }
+
+  public BulkTransferService(PlatformTransactionManager transactionManager, MemberRepository memberRepository, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive chunkSize=" + chunkSize);
+    }
+    this.txTemplate = new TransactionTemplate(transactionManager);
+    this.memberRepository = memberRepository;
+    this.chunkSize = chunkSize;
+  }
+
+  public Result transferAll(List<Transfer> transfers) {
+    List<Failure> failures = new ArrayList<>();
+    for (int from = 0; from < transfers.size(); from += chunkSize) {
+      List<Transfer> chunk = transfers.subList(from, Math.min(from + chunkSize, transfers.size()));
+      // 청크마다 커밋
+      txTemplate.executeWithoutResult(status -> transferChunk(status, chunk, failures));
+    }
+    return new Result(transfers.size() - failures.size(), failures);
+  }
+
+  private void transferChunk(TransactionStatus status, List<Transfer> chunk, List<Failure> failures) {
+    List<Transfer> valid = new ArrayList<>(chunk.size());
+    for (Transfer transfer : chunk) {
+      try {
+        MemberServiceV4.validation(transfer.toId());
+        valid.add(transfer);
+      } catch (IllegalStateException e) {
+        failures.add(new Failure(transfer, e.getMessage()));
+      }
+    }
+    if (valid.isEmpty()) {
+      return;
+    }
+
+    Object chunkSavepoint = status.createSavepoint();
+    if (applyBatch(valid)) {
+      status.releaseSavepoint(chunkSavepoint);
+      return;
+    }
+
+    log.debug("batch transfer failed, retry one by one size={}", valid.size());
+    status.rollbackToSavepoint(chunkSavepoint);
+    for (Transfer transfer : valid) {
+      Object savepoint = status.createSavepoint();
+      String reason = applyOne(transfer);
+      if (reason == null) {
+        status.releaseSavepoint(savepoint);
+      } else {
+        status.rollbackToSavepoint(savepoint);
+        failures.add(new Failure(transfer, reason));
+      }
+    }
+  }
+
+  private boolean applyBatch(List<Transfer> transfers) {
+    List<MoneyDelta> deltas = new ArrayList<>(transfers.size() * 2);
+    for (Transfer transfer : transfers) {
+      deltas.add(new MoneyDelta(transfer.fromId(), -transfer.money()));
+      deltas.add(new MoneyDelta(transfer.toId(), transfer.money()));
+    }
+
+    try {
+      for (int count : memberRepository.addMoneyAll(deltas)) {
+        if (count == 0) {
+          return false;
+        }
+      }
+      return true;
+    } catch (DataAccessException e) {
+      log.debug("batch transfer error", e);
+      return false;
+    }
+  }
+
+  // 실패하면 이유를, 성공하면 null 을 반환한다.
+  private String applyOne(Transfer transfer) {
+    try {
+      if (memberRepository.decrementMoney(transfer.fromId(), transfer.money(), true) == 0) {
+        return "잔액 부족 또는 회원 없음 memberId=" + transfer.fromId();
+      }
+      if (memberRepository.incrementMoney(transfer.toId(), transfer.money()) == 0) {
+        return "member not found memberId=" + transfer.toId();
+      }
+      return null;
+    } catch (DataAccessException e) {
+      return e.getMessage();
+    }
+  }
+
+  public record Result(int succeeded, List<Failure> failures) {
+  }
+
+  public record Failure(Transfer transfer, String reason) {
+  }
+}
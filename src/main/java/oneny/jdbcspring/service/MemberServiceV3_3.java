@@ -23,6 +23,26 @@ public class MemberServiceV3_3 {
     bizLogic(fromId, toId, money);
   }
 
+  /**
+   * 비관적 락 - 항상 memberId 순서로 select ... for update 해서 교착 상태를 막는다.
+   */
+  @Transactional
+  public void accountTransferPessimistic(String fromId, String toId, int money) throws SQLException {
+    Member fromMember;
+    Member toMember;
+    if (fromId.compareTo(toId) <= 0) {
+      fromMember = memberRepository.findByIdForUpdate(fromId);
+      toMember = memberRepository.findByIdForUpdate(toId);
+    } else {
+      toMember = memberRepository.findByIdForUpdate(toId);
+      fromMember = memberRepository.findByIdForUpdate(fromId);
+    }
+
+    memberRepository.update(fromId, fromMember.getMoney() - money);
+    validation(toMember);
+    memberRepository.update(toId, toMember.getMoney() + money);
+  }
+
   private void bizLogic(String fromId, String toId, int money) throws SQLException {
     Member fromMember = memberRepository.findById(fromId);
     Member toMember = memberRepository.findById(toId);
@@ -8,6 +8,7 @@ import oneny.jdbcspring.repository.MemberRepositoryV3;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.SQLException;
+import java.util.NoSuchElementException;
 
 /**
  * 예외 누수 문제 해결
@@ -26,17 +27,68 @@ public class MemberServiceV4 {
     bizLogic(fromId, toId, money);
   }
 
+  /**
+   * 잔액을 조회하지 않고 DB 에서 money = money -/+ ? 로 변경한다. (SQL 4번 -> 2번)
+   * 출금은 잔액이 부족하면 변경하지 않으므로 행 락을 조회부터 잡고 있지 않아도 잔액이 음수가 되지 않는다.
+   */
+  @Transactional
+  public void accountTransferRelative(String fromId, String toId, int money) {
+    if (memberRepository.decrementMoney(fromId, money, true) == 0) {
+      throw new IllegalStateException("잔액 부족 또는 회원 없음 memberId=" + fromId);
+    }
+    validation(toId);
+    if (memberRepository.incrementMoney(toId, money) == 0) {
+      throw new NoSuchElementException("member not found memberId=" + toId);
+    }
+  }
+
+  /**
+   * 낙관적 락 - 조회한 version 으로 조건부 update
+   * 그 사이 다른 트랜잭션이 변경했으면 OptimisticLockingFailureException 이 발생하고 롤백된다.
+   * 재시도는 트랜잭션 밖에서 해야 하므로 OptimisticTransferService 를 사용한다.
+   */
+  @Transactional
+  public void accountTransferOptimistic(String fromId, String toId, int money) {
+    Member fromMember = memberRepository.findById(fromId);
+    Member toMember = memberRepository.findById(toId);
+
+    memberRepository.updateWithVersion(fromId, fromMember.getMoney() - money, fromMember.getVersion());
+    validation(toMember.getMemberId());
+    memberRepository.updateWithVersion(toId, toMember.getMoney() + money, toMember.getVersion());
+  }
+
+  /**
+   * 비관적 락 - 두 회원을 select ... for update 로 잠근 후 변경한다.
+   * A->B, B->A 이체가 동시에 실행돼도 항상 memberId 순서로 잠그므로 서로의 락을 기다리는 교착 상태가 생기지 않는다.
+   */
+  @Transactional
+  public void accountTransferPessimistic(String fromId, String toId, int money) {
+    Member fromMember;
+    Member toMember;
+    if (fromId.compareTo(toId) <= 0) {
+      fromMember = memberRepository.findByIdForUpdate(fromId);
+      toMember = memberRepository.findByIdForUpdate(toId);
+    } else {
+      toMember = memberRepository.findByIdForUpdate(toId);
+      fromMember = memberRepository.findByIdForUpdate(fromId);
+    }
+
+    memberRepository.update(fromId, fromMember.getMoney() - money);
+    validation(toMember.getMemberId());
+    memberRepository.update(toId, toMember.getMoney() + money);
+  }
+
   private void bizLogic(String fromId, String toId, int money) {
     Member fromMember = memberRepository.findById(fromId);
     Member toMember = memberRepository.findById(toId);
 
     memberRepository.update(fromId, fromMember.getMoney() - money);
-    validation(toMember);
+    validation(toMember.getMemberId());
     memberRepository.update(toId, toMember.getMoney() + money);
   }
 
-  private void validation(Member toMember) {
-    if (toMember.getMemberId().equalsIgnoreCase("ex")) {
+  static void validation(String toId) {
+    if (toId.equalsIgnoreCase("ex")) {
       throw new IllegalStateException("이체 중 예외 발생");
     }
   }
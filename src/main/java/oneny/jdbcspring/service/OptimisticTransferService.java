@@ -0,0 +1,62 @@
+package oneny.jdbcspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 낙관적 락 이체 재시도
+ * MemberServiceV4.accountTransferOptimistic()이 충돌(ConcurrencyFailureException)로 롤백되면
+ * 새 트랜잭션으로 다시 시도한다. 같은 객체 안에서 @Transactional 메서드를 호출하면 프록시를 거치지 않아
+ * 시도마다 트랜잭션이 새로 시작되지 않으므로, 트랜잭션 프록시(MemberServiceV4) 밖에서 재시도한다.
+ *
+ * 재시도 간격은 min(maxBackoff, baseBackoff * 2^시도횟수) 범위에서 무작위로 고른다(full jitter).
+ * 충돌한 스레드들이 같은 시점에 다시 부딪히지 않도록 하기 위함이다.
+ */
+@Slf4j
+public class OptimisticTransferService {
+
+  private final MemberServiceV4 memberService;
+  private final int maxAttempts;
+  private final long baseBackoffNanos;
+  private final long maxBackoffNanos;
+
+  public OptimisticTransferService(MemberServiceV4 memberService, int maxAttempts, Duration baseBackoff, Duration maxBackoff) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be positive maxAttempts=" + maxAttempts);
+    }
+    this.memberService = memberService;
+    this.maxAttempts = maxAttempts;
+    this.baseBackoffNanos = baseBackoff.toNanos();
+    this.maxBackoffNanos = maxBackoff.toNanos();
+  }
+
+  public void accountTransfer(String fromId, String toId, int money) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        memberService.accountTransferOptimistic(fromId, toId, money);
+        return;
+      } catch (ConcurrencyFailureException e) {
+        if (attempt >= maxAttempts) {
+          log.warn("transfer conflict, give up attempts={}", attempt);
+          throw e;
+        }
+        log.debug("transfer conflict, retry attempt={}", attempt);
+        backoff(attempt);
+      }
+    }
+  }
+
+  private void backoff(int attempt) {
+    long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt, 20));
+    long sleepNanos = ThreadLocalRandom.current().nextLong(ceiling + 1);
+    try {
+      Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("transfer retry interrupted", e);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package oneny.jdbcspring.trace;
+
+/**
+ * JDBC 추적 이벤트
+ * 문자열 포맷은 이벤트를 기록하는 시점이 아니라 싱크에서 출력할 때 한다.
+ */
+public record JdbcTraceEvent(String operation, String sql, int rows, long elapsedNanos,
+                             Object detail, String thread, long timestamp) {
+
+  @Override
+  public String toString() {
+    return "op=" + operation
+            + " elapsedUs=" + elapsedNanos / 1000
+            + " rows=" + rows
+            + " thread=" + thread
+            + (sql != null ? " sql=\"" + sql + "\"" : "")
+            + (detail != null ? " detail=" + detail : "");
+  }
+}
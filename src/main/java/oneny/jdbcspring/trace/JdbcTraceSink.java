@@ -0,0 +1,14 @@
+package oneny.jdbcspring.trace;
+
+/**
+ * JDBC 추적 이벤트를 받는 곳
+ */
+public interface JdbcTraceSink {
+
+  /**
+   * 이벤트를 받을 수 있는지, false 면 JdbcTracer 는 이벤트를 만들지 않는다.
+   */
+  boolean isEnabled();
+
+  void accept(JdbcTraceEvent event);
+}
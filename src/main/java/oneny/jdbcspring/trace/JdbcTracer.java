@@ -0,0 +1,67 @@
+package oneny.jdbcspring.trace;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 샘플링하는 JDBC 추적
+ * 리포지토리의 커넥션 획득, SQL 실행마다 log.info 로 남기던 것을 대신한다.
+ *
+ * long start = tracer.start("update");
+ * ... SQL 실행 ...
+ * tracer.end("update", sql, resultSize, start, null);
+ *
+ * 연산(operation)별 샘플링 비율(0.0 ~ 1.0)로 추적할 호출을 고르고, 고르지 않은 호출은 시간 측정도 하지 않는다.
+ * 싱크가 꺼져 있으면(예: DEBUG 꺼짐) 샘플링 전에 바로 반환한다.
+ */
+public class JdbcTracer {
+
+  public static final long NOT_SAMPLED = -1;
+
+  private static volatile JdbcTracer defaultTracer = new JdbcTracer(new Slf4jTraceSink(), 1.0, Map.of());
+
+  private final JdbcTraceSink sink;
+  private final double defaultSampleRate;
+  private final Map<String, Double> sampleRates;
+
+  public JdbcTracer(JdbcTraceSink sink, double defaultSampleRate, Map<String, Double> sampleRates) {
+    this.sink = sink;
+    this.defaultSampleRate = defaultSampleRate;
+    this.sampleRates = Map.copyOf(sampleRates);
+  }
+
+  public static JdbcTracer disabled() {
+    return new JdbcTracer(new Slf4jTraceSink(), 0.0, Map.of());
+  }
+
+  /**
+   * 리포지토리가 생성될 때 사용하는 추적, 기본값은 jdbc.trace 로거 DEBUG 로 모두 출력
+   * 리포지토리를 만들기 전에 변경해야 한다.
+   */
+  public static JdbcTracer getDefault() {
+    return defaultTracer;
+  }
+
+  public static void setDefault(JdbcTracer tracer) {
+    defaultTracer = tracer;
+  }
+
+  public long start(String operation) {
+    if (!sink.isEnabled()) {
+      return NOT_SAMPLED;
+    }
+    double rate = sampleRates.getOrDefault(operation, defaultSampleRate);
+    if (rate <= 0.0 || (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+      return NOT_SAMPLED;
+    }
+    return System.nanoTime();
+  }
+
+  public void end(String operation, String sql, int rows, long start, Object detail) {
+    if (start == NOT_SAMPLED) {
+      return;
+    }
+    long elapsed = System.nanoTime() - start;
+    sink.accept(new JdbcTraceEvent(operation, sql, rows, elapsed, detail, Thread.currentThread().getName(), System.currentTimeMillis()));
+  }
+}
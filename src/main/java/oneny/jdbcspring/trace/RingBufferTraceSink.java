@@ -0,0 +1,105 @@
+package oneny.jdbcspring.trace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 비동기 링 버퍼 싱크
+ * 요청 스레드는 고정 크기 배열에 이벤트를 넣기만 하고, 출력은 별도 스레드가 대상 싱크로 전달한다.
+ * 버퍼가 가득 차면 요청 스레드를 기다리게 하지 않고 이벤트를 버린다(dropped).
+ */
+@Slf4j
+public class RingBufferTraceSink implements JdbcTraceSink, AutoCloseable {
+
+  private final JdbcTraceSink target;
+  private final AtomicReferenceArray<JdbcTraceEvent> buffer;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong(); // 다음에 넣을 위치 (생산자)
+  private final AtomicLong tail = new AtomicLong(); // 다음에 꺼낼 위치 (소비자)
+  private final LongAdder dropped = new LongAdder();
+  private final Thread consumer;
+  private volatile boolean running = true;
+
+  /**
+   * @param capacity 2의 거듭제곱으로 올림한다.
+   */
+  public RingBufferTraceSink(JdbcTraceSink target, int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.target = target;
+    this.buffer = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.consumer = new Thread(this::drainLoop, "jdbc-trace-sink");
+    this.consumer.setDaemon(true);
+    this.consumer.start();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return running;
+  }
+
+  @Override
+  public void accept(JdbcTraceEvent event) {
+    long seq;
+    do {
+      seq = head.get();
+      if (seq - tail.get() >= buffer.length()) {
+        dropped.increment();
+        return;
+      }
+    } while (!head.compareAndSet(seq, seq + 1));
+    buffer.lazySet((int) (seq & mask), event);
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  public long getPublishedCount() {
+    return head.get();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(consumer);
+    try {
+      consumer.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drainLoop() {
+    while (running || tail.get() < head.get()) {
+      if (!drain()) {
+        LockSupport.parkNanos(100_000);
+      }
+    }
+  }
+
+  private boolean drain() {
+    boolean drained = false;
+    long next = tail.get();
+    while (next < head.get()) {
+      int index = (int) (next & mask);
+      JdbcTraceEvent event = buffer.get(index);
+      if (event == null) {
+        break; // 생산자가 위치는 받았지만 아직 이벤트를 넣지 않았다.
+      }
+      buffer.lazySet(index, null);
+      tail.lazySet(++next);
+      drained = true;
+      try {
+        target.accept(event);
+      } catch (RuntimeException e) {
+        log.warn("trace sink error", e);
+      }
+    }
+    return drained;
+  }
+}
@@ -0,0 +1,21 @@
+package oneny.jdbcspring.trace;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * jdbc.trace 로거의 DEBUG 레벨로 출력
+ * DEBUG 가 꺼져 있으면 이벤트를 만들지도 않는다.
+ */
+@Slf4j(topic = "jdbc.trace")
+public class Slf4jTraceSink implements JdbcTraceSink {
+
+  @Override
+  public boolean isEnabled() {
+    return log.isDebugEnabled();
+  }
+
+  @Override
+  public void accept(JdbcTraceEvent event) {
+    log.debug("{}", event);
+  }
+}
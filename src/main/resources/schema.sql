@@ -0,0 +1,23 @@
+create table if not exists member (
+    member_id varchar(10),
+    money integer not null default 0,
+    version bigint not null default 0,
+    primary key (member_id)
+);
+
+-- version 컬럼이 없던 기존 member 테이블에 낙관적 락 버전 추가
+alter table member add column if not exists version bigint not null default 0;
+
+-- 잔액 분할(StripedMemberRepository) - 회원 잔액 = member.money + 모든 stripe 의 money
+create table if not exists member_balance_stripe (
+    member_id varchar(10),
+    stripe integer not null,
+    money integer not null default 0,
+    version bigint not null default 0,
+    primary key (member_id, stripe)
+);
+
+alter table member_balance_stripe add column if not exists version bigint not null default 0;
+
+-- 회원 ID 블록 할당(HiLoMemberIdGenerator) - nextval 한 번에 blockSize 개의 ID 를 예약한다.
+create sequence if not exists member_id_seq start with 1 increment by 1;
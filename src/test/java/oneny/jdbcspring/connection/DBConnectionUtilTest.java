@@ -1,21 +1,56 @@
 package oneny.jdbcspring.connection;
 
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @Slf4j
 public class DBConnectionUtilTest {
 
+  @AfterEach
+  void afterEach() {
+    DBConnectionUtil.shutdown();
+  }
+
   // 실행 결과를 보면 class=class org.h2.jdbc.JdbcConnection 부분을 확인할 수 있다.
   // 이것이 H2 데이터베이스 드라이버가 제공하는 H2 전용 커넥션이다.
   // 물론 이 커넥션은 JDBC 표준 커넥션 인터페이스인 java.sql.Connection 인터페이스를 구현하고 있다.
+  // 커넥션 풀을 사용하면 class=class com.zaxxer.hikari.pool.HikariProxyConnection 처럼 풀이 감싼 커넥션이 반환된다.
   @Test
   void connection() {
     Connection connection = DBConnectionUtil.getConnection();
     assertThat(connection).isNotNull();
   }
+
+  @Test
+  void reuseConnection() throws SQLException {
+    DBConnectionUtil.configure(1, 0, 10_000);
+
+    Connection con1 = DBConnectionUtil.getConnection();
+    Connection physical1 = con1.unwrap(Connection.class);
+    con1.close(); // 풀에 반환
+
+    Connection con2 = DBConnectionUtil.getConnection();
+    Connection physical2 = con2.unwrap(Connection.class);
+    con2.close();
+
+    // 풀 크기가 1이므로 같은 물리 커넥션을 재사용한다.
+    assertThat(physical2).isSameAs(physical1);
+  }
+
+  @Test
+  void shutdownAndRecreate() throws SQLException {
+    DBConnectionUtil.getConnection().close();
+    DBConnectionUtil.shutdown();
+
+    // 종료 후에도 정적 API는 그대로 동작한다.
+    Connection connection = DBConnectionUtil.getConnection();
+    assertThat(connection.isValid(1)).isTrue();
+    connection.close();
+  }
 }
@@ -0,0 +1,36 @@
+package oneny.jdbcspring.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepositoryV5;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class DbModeTest {
+
+  @Test
+  void from() {
+    assertThat(DbMode.from("memory")).isEqualTo(DbMode.MEMORY);
+    assertThat(DbMode.from(" Embedded ")).isEqualTo(DbMode.EMBEDDED);
+    assertThat(DbMode.from("TCP")).isEqualTo(DbMode.TCP);
+  }
+
+  @Test
+  void memoryModeBootstrapsSchema() {
+    // 별도의 H2 서버 없이 같은 JVM 안에서 member 테이블까지 준비된다.
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+
+    Member member = new Member("memoryA", 10000);
+    repository.save(member);
+    try {
+      assertThat(repository.findById(member.getMemberId())).isEqualTo(member);
+    } finally {
+      repository.delete(member.getMemberId());
+    }
+  }
+}
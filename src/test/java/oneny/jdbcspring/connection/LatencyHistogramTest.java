@@ -0,0 +1,42 @@
+package oneny.jdbcspring.connection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+  @Test
+  void percentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 10_000; i++) {
+      histogram.record(i * 1000); // 1us ~ 10ms
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(10_000);
+    assertThat(histogram.getMax()).isEqualTo(10_000_000);
+    // 상대 오차 1% 이내
+    assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(5_000_000, within(50_000.0));
+    assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(9_900_000, within(99_000.0));
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(10_000_000);
+  }
+
+  @Test
+  void bucketBoundary() {
+    for (long value : new long[]{0, 1, 127, 128, 255, 256, 1_000_000, Long.MAX_VALUE}) {
+      long highest = LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value));
+      assertThat(highest).isGreaterThanOrEqualTo(value);
+    }
+  }
+
+  @Test
+  void reset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    histogram.reset();
+
+    assertThat(histogram.getCount()).isZero();
+    assertThat(histogram.getValueAtPercentile(99)).isZero();
+  }
+}
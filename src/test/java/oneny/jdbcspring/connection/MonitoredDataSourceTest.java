@@ -0,0 +1,85 @@
+package oneny.jdbcspring.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepository;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class MonitoredDataSourceTest {
+
+  static final long CONNECTION_TIMEOUT_MS = 1000;
+
+  HikariDataSource hikariDataSource;
+  MonitoredDataSource dataSource;
+  MemberRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    hikariDataSource = new HikariDataSource();
+    hikariDataSource.setJdbcUrl(DbMode.MEMORY.getUrl());
+    hikariDataSource.setUsername(USERNAME);
+    hikariDataSource.setPassword(PASSWORD);
+    hikariDataSource.setMaximumPoolSize(2);
+    hikariDataSource.setConnectionTimeout(CONNECTION_TIMEOUT_MS);
+
+    dataSource = new MonitoredDataSource(hikariDataSource);
+    repository = new MemberRepositoryV4_2(dataSource);
+    repository.save(new Member("monitorA", 10000));
+  }
+
+  @AfterEach
+  void afterEach() {
+    repository.delete("monitorA");
+    hikariDataSource.close();
+  }
+
+  @Test
+  void starvation() throws InterruptedException {
+    dataSource.reset();
+
+    // 풀 크기(2)보다 많은 스레드가 커넥션을 요청하면 획득 대기 시간이 늘어난다.
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 400; i++) {
+      executor.submit(() -> repository.findById("monitorA"));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    dataSource.logStatistics();
+    assertThat(dataSource.getAcquireHistogram().getCount()).isEqualTo(400);
+    assertThat(dataSource.getHoldHistogram().getCount()).isEqualTo(400);
+    assertThat(dataSource.getBorrowedHistogram().getMax()).isLessThanOrEqualTo(2);
+    assertThat(dataSource.getBorrowedCount()).isZero();
+    assertThat(dataSource.getFailedAcquireCount()).isZero();
+  }
+
+  @Test
+  @DisplayName("풀 타임아웃으로 실패한 획득도 대기 시간을 기록한다")
+  void failedAcquire() throws SQLException {
+    dataSource.reset();
+
+    try (Connection con1 = dataSource.getConnection(); Connection con2 = dataSource.getConnection()) {
+      assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLException.class);
+    }
+
+    assertThat(dataSource.getFailedAcquireCount()).isEqualTo(1);
+    assertThat(dataSource.getAcquireHistogram().getCount()).isEqualTo(3);
+    assertThat(dataSource.getAcquireHistogram().getMax()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(CONNECTION_TIMEOUT_MS));
+  }
+}
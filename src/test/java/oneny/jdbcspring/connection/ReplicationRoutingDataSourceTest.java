@@ -0,0 +1,97 @@
+package oneny.jdbcspring.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepository;
+import oneny.jdbcspring.repository.MemberRepositoryV5;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 여러 개의 H2 메모리 DB 를 프라이머리, 레플리카로 사용
+ * 같은 memberId 에 DB 마다 다른 money 를 저장해서 어느 DB 로 라우팅됐는지 확인한다.
+ */
+@Slf4j
+class ReplicationRoutingDataSourceTest {
+
+  static final String MEMBER_ID = "routeA";
+
+  List<MemberRepository> directRepositories = new ArrayList<>();
+  MemberRepository repository;
+  TransactionTemplate txTemplate;
+  TransactionTemplate readOnlyTxTemplate;
+
+  @BeforeEach
+  void setUp() {
+    DataSource primary = memoryDataSource("primary");
+    List<DataSource> replicas = List.of(memoryDataSource("replica0"), memoryDataSource("replica1"));
+
+    // primary=0, replica0=1000, replica1=2000
+    saveDirect(primary, 0);
+    for (int i = 0; i < replicas.size(); i++) {
+      saveDirect(replicas.get(i), (i + 1) * 1000);
+    }
+
+    DataSource dataSource = ReplicationRoutingDataSource.create(primary, replicas);
+    repository = new MemberRepositoryV5(dataSource);
+
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    txTemplate = new TransactionTemplate(transactionManager);
+    readOnlyTxTemplate = new TransactionTemplate(transactionManager);
+    readOnlyTxTemplate.setReadOnly(true);
+  }
+
+  @AfterEach
+  void afterEach() {
+    directRepositories.forEach(r -> r.delete(MEMBER_ID));
+  }
+
+  @Test
+  void writeAndReadWriteTransactionGoToPrimary() {
+    assertThat(repository.findById(MEMBER_ID).getMoney()).isEqualTo(0);
+
+    Integer money = txTemplate.execute(status -> repository.findById(MEMBER_ID).getMoney());
+    assertThat(money).isEqualTo(0);
+  }
+
+  @Test
+  void readOnlyTransactionGoesToReplicas() {
+    Set<Integer> seen = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      seen.add(readOnlyTxTemplate.execute(status -> repository.findById(MEMBER_ID).getMoney()));
+    }
+
+    // 라운드 로빈으로 두 레플리카에 나눠서 보낸다.
+    assertThat(seen).containsExactlyInAnyOrder(1000, 2000);
+  }
+
+  @Test
+  void nonTransactionalReadFromReplica() {
+    Member member = ReplicationRoutingDataSource.readFromReplica(() -> repository.findById(MEMBER_ID));
+    assertThat(member.getMoney()).isIn(1000, 2000);
+  }
+
+  private DataSource memoryDataSource(String name) {
+    String url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+    return new DriverManagerDataSource(url, USERNAME, PASSWORD);
+  }
+
+  private void saveDirect(DataSource dataSource, int money) {
+    MemberRepositoryV5 direct = new MemberRepositoryV5(dataSource);
+    direct.save(new Member(MEMBER_ID, money));
+    directRepositories.add(direct);
+  }
+}
@@ -0,0 +1,158 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class CachingMemberRepositoryTest {
+
+  static final String MEMBER_A = "cacheA";
+  static final String MEMBER_B = "cacheB";
+
+  MemberRepository target;
+  CachingMemberRepository repository;
+  TransactionTemplate txTemplate;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    target = new MemberRepositoryV4_2(dataSource);
+    repository = new CachingMemberRepository(target, 100, Duration.ofMinutes(1));
+    txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    repository.save(new Member(MEMBER_A, 10000));
+    repository.save(new Member(MEMBER_B, 10000));
+  }
+
+  @AfterEach
+  void afterEach() {
+    repository.delete(MEMBER_A);
+    repository.delete(MEMBER_B);
+  }
+
+  @Test
+  void hit() {
+    repository.findById(MEMBER_A);
+    repository.findById(MEMBER_A);
+
+    assertThat(repository.getMissCount()).isEqualTo(1);
+    assertThat(repository.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("커밋 후에 캐시 제거")
+  void invalidateAfterCommit() {
+    repository.findById(MEMBER_A);
+
+    txTemplate.executeWithoutResult(status -> {
+      repository.update(MEMBER_A, 8000);
+      // 트랜잭션 안에서는 변경한 값을 본다.
+      assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+    });
+
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(8000);
+  }
+
+  @Test
+  @DisplayName("롤백되면 캐시된 잔액이 그대로 맞다")
+  void keepOnRollback() {
+    repository.findById(MEMBER_A);
+    repository.findById(MEMBER_B);
+
+    // accountTransfer 에서 검증 실패로 롤백되는 상황
+    assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+      repository.update(MEMBER_A, repository.findById(MEMBER_A).getMoney() - 2000);
+      throw new IllegalStateException("이체 중 예외 발생");
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+    assertThat(target.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+  }
+
+  @Test
+  void invalidateWithoutTransaction() {
+    repository.findById(MEMBER_A);
+    repository.update(MEMBER_A, 5000);
+
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(5000);
+  }
+
+  @Test
+  void lruEviction() {
+    CachingMemberRepository small = new CachingMemberRepository(target, 1, Duration.ofMinutes(1));
+    small.findById(MEMBER_A);
+    small.findById(MEMBER_B); // MEMBER_A 제거
+
+    assertThat(small.size()).isEqualTo(1);
+    assertThat(small.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  void ttl() throws InterruptedException {
+    CachingMemberRepository shortLived = new CachingMemberRepository(target, 100, Duration.ofMillis(10));
+    shortLived.findById(MEMBER_A);
+    Thread.sleep(20);
+    shortLived.findById(MEMBER_A);
+
+    assertThat(shortLived.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  void findByIds() {
+    repository.findById(MEMBER_A);
+
+    assertThat(repository.findByIds(List.of(MEMBER_A, MEMBER_B, "none")))
+            .containsKeys(MEMBER_A, MEMBER_B, "none");
+    assertThat(repository.getHitCount()).isEqualTo(1);
+    assertThat(repository.size()).isEqualTo(2);
+  }
+
+  @Test
+  void returnCopy() {
+    repository.findById(MEMBER_A).setMoney(0);
+
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(10000);
+  }
+
+  @Test
+  @DisplayName("없는 회원도 negativeTtl 동안 캐시")
+  void negativeCache() {
+    CachingMemberRepository negative = new CachingMemberRepository(target, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+    assertThat(negative.findOptionalById("none")).isEmpty();
+    assertThat(negative.findOptionalById("none")).isEmpty();
+    assertThat(negative.findByIds(List.of("none")).get("none")).isEmpty();
+
+    assertThat(negative.getMissCount()).isEqualTo(1);
+    assertThat(negative.getHitCount()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("저장하면 없는 회원 캐시를 제거")
+  void negativeCacheInvalidatedOnSave() {
+    CachingMemberRepository negative = new CachingMemberRepository(target, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    negative.findOptionalById("cacheC");
+
+    negative.save(new Member("cacheC", 3000));
+    try {
+      assertThat(negative.findOptionalById("cacheC")).map(Member::getMoney).contains(3000);
+    } finally {
+      negative.delete("cacheC");
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class CoalescingMoneyUpdaterTest {
+
+  static final String HOT_MEMBER = "hotMember";
+
+  static final int THREADS = 16;
+  static final int REQUESTS_PER_THREAD = 100;
+
+  MemberRepository repository;
+  CoalescingMoneyUpdater updater;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    repository = new MemberRepositoryV4_2(dataSource);
+    updater = new CoalescingMoneyUpdater(repository, Duration.ofMillis(5), 256, 2);
+    repository.save(new Member(HOT_MEMBER, 100));
+  }
+
+  @AfterEach
+  void afterEach() {
+    updater.close();
+    repository.delete(HOT_MEMBER);
+  }
+
+  @Test
+  @DisplayName("여러 스레드의 입금을 합쳐서 update 횟수를 줄인다")
+  void coalesce() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      executor.submit(() -> {
+        for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+          CompletableFuture<Void> future = updater.addMoney(HOT_MEMBER, 1);
+          synchronized (futures) {
+            futures.add(future);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+    log.info("requests={}, updates={}", updater.getRequestCount(), updater.getUpdateCount());
+    assertThat(repository.findById(HOT_MEMBER).getMoney()).isEqualTo(100 + THREADS * REQUESTS_PER_THREAD);
+    assertThat(updater.getUpdateCount()).isLessThan(updater.getRequestCount());
+  }
+
+  @Test
+  @DisplayName("합친 출금이 잔액을 넘으면 요청마다 다시 실행해서 실패한 요청만 알려준다")
+  void insufficientMoney() {
+    CompletableFuture<Void> first = updater.addMoney(HOT_MEMBER, -80);
+    CompletableFuture<Void> second = updater.addMoney(HOT_MEMBER, -80);
+
+    first.join();
+    assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(repository.findById(HOT_MEMBER).getMoney()).isEqualTo(20);
+  }
+
+  @Test
+  @DisplayName("close() 이후의 요청은 실패한 future 로 알려준다")
+  void addMoneyAfterClose() {
+    updater.close();
+
+    CompletableFuture<Void> future = updater.addMoney(HOT_MEMBER, 1000);
+
+    assertThatThrownBy(future::join).hasCauseInstanceOf(RejectedExecutionException.class);
+    assertThat(repository.findById(HOT_MEMBER).getMoney()).isEqualTo(100);
+  }
+
+  @Test
+  void memberNotFound() {
+    CompletableFuture<Void> future = updater.addMoney("unknown", 1000);
+
+    assertThatThrownBy(future::join).hasCauseInstanceOf(NoSuchElementException.class);
+  }
+}
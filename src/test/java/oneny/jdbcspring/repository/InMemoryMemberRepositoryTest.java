@@ -0,0 +1,124 @@
+package oneny.jdbcspring.repository;
+
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryMemberRepositoryTest {
+
+  InMemoryMemberRepository repository = new InMemoryMemberRepository(16, 4);
+
+  @Test
+  void crud() {
+    // save
+    Member member = new Member("memberV0", 10000);
+    repository.save(member);
+
+    // findById
+    Member findMember = repository.findById(member.getMemberId());
+    assertThat(findMember).isEqualTo(member);
+
+    // update: money: 10000 -> 20000
+    repository.update(member.getMemberId(), 20000);
+    Member updatedMember = repository.findById(member.getMemberId());
+    assertThat(updatedMember.getMoney()).isEqualTo(20000);
+    assertThat(updatedMember.getVersion()).isEqualTo(1);
+
+    // delete
+    repository.delete(member.getMemberId());
+    assertThatThrownBy(() -> repository.findById(member.getMemberId()))
+            .isInstanceOf(EmptyResultDataAccessException.class);
+  }
+
+  @Test
+  @DisplayName("MemberRepositoryV5 와 같은 예외")
+  void sameExceptionsAsV5() {
+    repository.save(new Member("memberA", 10000));
+
+    assertThatThrownBy(() -> repository.save(new Member("memberA", 0)))
+            .isInstanceOf(DuplicateKeyException.class);
+    assertThatThrownBy(() -> repository.saveAll(List.of(new Member("memberB", 0), new Member("memberA", 0))))
+            .isInstanceOf(DuplicateKeyException.class)
+            .hasMessageContaining("failedMemberIds=[memberA]");
+    assertThat(repository.findOptionalById("memberB")).isPresent();
+    assertThatThrownBy(() -> repository.save(new Member("tooLongMemberId", 0)))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    assertThatThrownBy(() -> repository.updateWithVersion("memberA", 0, 5))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+    assertThat(repository.findOptionalById("none")).isEmpty();
+  }
+
+  @Test
+  @DisplayName("null memberId 는 없는 회원처럼 0 로우 변경")
+  void nullMemberId() {
+    repository.update(null, 100);
+    repository.delete(null);
+    assertThat(repository.incrementMoney(null, 30)).isZero();
+    assertThat(repository.decrementMoney(null, 30, true)).isZero();
+    assertThatThrownBy(() -> repository.updateWithVersion(null, 0, 0))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+    assertThat(repository.size()).isZero();
+  }
+
+  @Test
+  void relativeUpdates() {
+    repository.save(new Member("memberA", 100));
+
+    assertThat(repository.decrementMoney("memberA", 150, true)).isZero();
+    assertThat(repository.decrementMoney("memberA", 80, true)).isEqualTo(1);
+    assertThat(repository.incrementMoney("memberA", 30)).isEqualTo(1);
+    assertThat(repository.incrementMoney("none", 30)).isZero();
+    assertThat(repository.findById("memberA").getMoney()).isEqualTo(50);
+  }
+
+  @Test
+  @DisplayName("삭제와 저장을 반복해도 테이블이 커지기만 하지 않는다")
+  void growAndReuseDeletedSlots() {
+    for (int i = 0; i < 10_000; i++) {
+      repository.save(new Member("m" + i, i));
+    }
+    for (int i = 0; i < 10_000; i += 2) {
+      repository.delete("m" + i);
+    }
+    for (int i = 0; i < 10_000; i += 2) {
+      repository.save(new Member("m" + i, -i));
+    }
+
+    assertThat(repository.size()).isEqualTo(10_000);
+    assertThat(repository.findById("m9999").getMoney()).isEqualTo(9999);
+    assertThat(repository.findById("m9998").getMoney()).isEqualTo(-9998);
+    try (Stream<Member> members = repository.streamAll(100)) {
+      assertThat(members.count()).isEqualTo(10_000);
+    }
+  }
+
+  @Test
+  void concurrentIncrements() throws InterruptedException {
+    repository.save(new Member("memberA", 0));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 8; i++) {
+      executor.submit(() -> {
+        for (int j = 0; j < 1000; j++) {
+          repository.incrementMoney("memberA", 1);
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(repository.findById("memberA").getMoney()).isEqualTo(8000);
+  }
+}
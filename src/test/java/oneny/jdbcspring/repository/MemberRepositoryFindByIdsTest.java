@@ -0,0 +1,77 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class MemberRepositoryFindByIdsTest {
+
+  JdbcTemplate template;
+  MemberRepositoryV4_2 repositoryV4_2;
+  MemberRepositoryV5 repositoryV5;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    template = new JdbcTemplate(dataSource);
+    repositoryV4_2 = new MemberRepositoryV4_2(dataSource);
+    repositoryV5 = new MemberRepositoryV5(dataSource);
+
+    List<Member> members = new ArrayList<>();
+    for (int i = 0; i < 1500; i++) {
+      members.add(new Member("multi" + i, i));
+    }
+    repositoryV5.saveAll(members);
+  }
+
+  @AfterEach
+  void afterEach() {
+    template.update("delete from member where member_id like 'multi%'");
+  }
+
+  @Test
+  void findByIdsV4_2() {
+    assertFindByIds(repositoryV4_2);
+  }
+
+  @Test
+  void findByIdsV5() {
+    assertFindByIds(repositoryV5);
+  }
+
+  @Test
+  void moreThanInListSize() {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 1500; i++) {
+      ids.add("multi" + i);
+    }
+
+    assertThat(repositoryV4_2.findByIds(ids).values()).allMatch(Optional::isPresent);
+    assertThat(repositoryV5.findByIds(ids).values()).allMatch(Optional::isPresent);
+  }
+
+  private void assertFindByIds(MemberRepository repository) {
+    Map<String, Optional<Member>> result = repository.findByIds(List.of("multi2", "none", "multi1", "multi2"));
+
+    // 요청 순서대로, 중복은 한 번만, 없는 회원은 Optional.empty()
+    assertThat(result).containsOnlyKeys("multi2", "none", "multi1");
+    assertThat(result.keySet()).containsExactly("multi2", "none", "multi1");
+    assertThat(result.get("multi1")).contains(new Member("multi1", 1));
+    assertThat(result.get("multi2")).contains(new Member("multi2", 2));
+    assertThat(result.get("none")).isEmpty();
+  }
+}
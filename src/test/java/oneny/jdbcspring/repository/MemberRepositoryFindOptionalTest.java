@@ -0,0 +1,42 @@
+package oneny.jdbcspring.repository;
+
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberRepositoryFindOptionalTest {
+
+  static final String MEMBER_A = "optionalA";
+
+  List<MemberRepository> repositories;
+  MemberRepositoryV5 repositoryV5;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    repositoryV5 = new MemberRepositoryV5(dataSource);
+    repositories = List.of(new MemberRepositoryV4_1(dataSource), new MemberRepositoryV4_2(dataSource), repositoryV5);
+    repositoryV5.save(new Member(MEMBER_A, 10000));
+  }
+
+  @AfterEach
+  void afterEach() {
+    repositoryV5.delete(MEMBER_A);
+  }
+
+  @Test
+  void findOptionalById() {
+    for (MemberRepository repository : repositories) {
+      assertThat(repository.findOptionalById(MEMBER_A)).map(Member::getMoney).contains(10000);
+      assertThat(repository.findOptionalById("none")).isEmpty();
+    }
+  }
+}
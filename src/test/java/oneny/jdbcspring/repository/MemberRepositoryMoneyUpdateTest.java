@@ -0,0 +1,54 @@
+package oneny.jdbcspring.repository;
+
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberRepositoryMoneyUpdateTest {
+
+  static final String MEMBER_A = "moneyA";
+
+  List<MemberRepository> repositories;
+  MemberRepositoryV5 repositoryV5;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    repositoryV5 = new MemberRepositoryV5(dataSource);
+    repositories = List.of(new MemberRepositoryV4_1(dataSource), new MemberRepositoryV4_2(dataSource), repositoryV5);
+  }
+
+  @AfterEach
+  void afterEach() {
+    repositoryV5.delete(MEMBER_A);
+  }
+
+  @Test
+  void incrementAndDecrement() {
+    for (MemberRepository repository : repositories) {
+      repository.save(new Member(MEMBER_A, 1000));
+
+      assertThat(repository.incrementMoney(MEMBER_A, 500)).isEqualTo(1);
+      assertThat(repository.decrementMoney(MEMBER_A, 300, true)).isEqualTo(1);
+      // 잔액이 부족하면 변경하지 않는다.
+      assertThat(repository.decrementMoney(MEMBER_A, 1201, true)).isZero();
+      assertThat(repository.decrementMoney(MEMBER_A, 1201, false)).isEqualTo(1);
+
+      Member member = repository.findById(MEMBER_A);
+      assertThat(member.getMoney()).isEqualTo(-1);
+      assertThat(member.getVersion()).isEqualTo(3);
+
+      assertThat(repository.incrementMoney("none", 500)).isZero();
+      assertThat(repository.decrementMoney("none", 500, true)).isZero();
+      repository.delete(MEMBER_A);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class MemberRepositorySaveAllTest {
+
+  static final int COUNT = 2500;
+
+  JdbcTemplate template;
+  MemberRepositoryV4_2 repositoryV4_2;
+  MemberRepositoryV5 repositoryV5;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    template = new JdbcTemplate(dataSource);
+    repositoryV4_2 = new MemberRepositoryV4_2(dataSource);
+    repositoryV4_2.setBatchSize(1000);
+    repositoryV5 = new MemberRepositoryV5(dataSource);
+    repositoryV5.setBatchSize(1000);
+  }
+
+  @AfterEach
+  void afterEach() {
+    template.update("delete from member where member_id like 'batch%'");
+  }
+
+  @Test
+  void saveAllV4_2() {
+    repositoryV4_2.saveAll(members(COUNT));
+    assertThat(count()).isEqualTo(COUNT);
+  }
+
+  @Test
+  void saveAllV5() {
+    repositoryV5.saveAll(members(COUNT));
+    assertThat(count()).isEqualTo(COUNT);
+  }
+
+  @Test
+  void duplicateKeyV4_2() {
+    repositoryV4_2.save(new Member("batch1", 0));
+
+    assertThatThrownBy(() -> repositoryV4_2.saveAll(members(3)))
+            .isInstanceOf(DuplicateKeyException.class)
+            .hasMessageContaining("failedMemberIds=[batch1]");
+  }
+
+  @Test
+  void duplicateKeyV5() {
+    repositoryV5.save(new Member("batch1", 0));
+
+    assertThatThrownBy(() -> repositoryV5.saveAll(members(3)))
+            .isInstanceOf(DuplicateKeyException.class)
+            .hasMessageContaining("failedMemberIds=[batch1]");
+  }
+
+  private List<Member> members(int count) {
+    List<Member> members = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      members.add(new Member("batch" + i, 10000));
+    }
+    return members;
+  }
+
+  private int count() {
+    return template.queryForObject("select count(*) from member where member_id like 'batch%'", Integer.class);
+  }
+}
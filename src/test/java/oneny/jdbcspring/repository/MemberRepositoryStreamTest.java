@@ -0,0 +1,120 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.MonitoredDataSource;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 전체 회원 스트리밍 조회
+ * 데이터가 힙에 올라가지 않도록 임시 디렉토리의 파일 DB 를 사용한다.
+ * LAZY_QUERY_EXECUTION=1 이면 H2 가 결과를 미리 만들어두지 않고 읽는 만큼만 가져온다.
+ */
+@Slf4j
+class MemberRepositoryStreamTest {
+
+  static final int ROW_COUNT = 2_000_000;
+  static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+  @TempDir
+  Path tempDir;
+
+  MonitoredDataSource dataSource;
+  MemberRepositoryV4_1 repositoryV4_1;
+  MemberRepositoryV4_2 repositoryV4_2;
+  MemberRepositoryV5 repositoryV5;
+
+  @BeforeEach
+  void setUp() {
+    String url = "jdbc:h2:file:" + tempDir.resolve("stream") + ";LAZY_QUERY_EXECUTION=1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+    dataSource = new MonitoredDataSource(new DriverManagerDataSource(url, USERNAME, PASSWORD));
+    repositoryV4_1 = new MemberRepositoryV4_1(dataSource);
+    repositoryV4_2 = new MemberRepositoryV4_2(dataSource);
+    repositoryV5 = new MemberRepositoryV5(dataSource);
+  }
+
+  @Test
+  void releaseConnectionWhenFinished() {
+    insert(1000);
+
+    assertThat(repositoryV4_1.streamAll(100).count()).isEqualTo(1000);
+    assertThat(dataSource.getBorrowedCount()).isZero();
+
+    assertThat(repositoryV4_2.streamAll(100).count()).isEqualTo(1000);
+    assertThat(dataSource.getBorrowedCount()).isZero();
+
+    assertThat(repositoryV5.streamAll(100).count()).isEqualTo(1000);
+    assertThat(dataSource.getBorrowedCount()).isZero();
+  }
+
+  @Test
+  void releaseConnectionWhenClosed() {
+    insert(1000);
+
+    try (Stream<Member> stream = repositoryV4_1.streamAll(100)) {
+      assertThat(stream.findFirst()).isPresent();
+    }
+    assertThat(dataSource.getBorrowedCount()).isZero();
+
+    try (Stream<Member> stream = repositoryV4_2.streamAll(100)) {
+      assertThat(stream.findFirst()).isPresent();
+    }
+    assertThat(dataSource.getBorrowedCount()).isZero();
+
+    try (Stream<Member> stream = repositoryV5.streamAll(100)) {
+      assertThat(stream.findFirst()).isPresent();
+    }
+    assertThat(dataSource.getBorrowedCount()).isZero();
+  }
+
+  /**
+   * 200만 건을 적재하고 System.gc() 후 힙을 비교하므로 느리고 환경에 따라 흔들린다. 기본 테스트에서 제외한다.
+   */
+  @Test
+  @Tag("slow")
+  void flatHeapUsage() {
+    insert(ROW_COUNT);
+
+    long baseline = usedHeap();
+    AtomicLong maxUsed = new AtomicLong(baseline);
+    AtomicLong count = new AtomicLong();
+    AtomicLong money = new AtomicLong();
+
+    try (Stream<Member> stream = repositoryV4_2.streamAll(1000)) {
+      stream.forEach(member -> {
+        money.addAndGet(member.getMoney());
+        if (count.incrementAndGet() % 200_000 == 0) {
+          maxUsed.accumulateAndGet(usedHeap(), Math::max);
+        }
+      });
+    }
+
+    long growth = maxUsed.get() - baseline;
+    log.info("scanned rows={}, heap baseline={}MB, growth={}MB", count.get(), baseline >> 20, growth >> 20);
+    assertThat(count.get()).isEqualTo(ROW_COUNT);
+    assertThat(money.get()).isEqualTo(ROW_COUNT);
+    assertThat(growth).isLessThan(MAX_HEAP_GROWTH);
+  }
+
+  private void insert(int count) {
+    new JdbcTemplate(dataSource).update("insert into member(member_id, money) select 's' || x, 1 from system_range(1, ?)", count);
+  }
+
+  private long usedHeap() {
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
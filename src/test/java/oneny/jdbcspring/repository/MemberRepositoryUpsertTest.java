@@ -0,0 +1,138 @@
+package oneny.jdbcspring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@Slf4j
+class MemberRepositoryUpsertTest {
+
+  static final int COUNT = 2500;
+
+  JdbcTemplate template;
+  MemberRepositoryV4_2 repositoryV4_2;
+  MemberRepositoryV5 repositoryV5;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    template = new JdbcTemplate(dataSource);
+    repositoryV4_2 = new MemberRepositoryV4_2(dataSource);
+    repositoryV4_2.setBatchSize(1000);
+    repositoryV5 = new MemberRepositoryV5(dataSource);
+    repositoryV5.setBatchSize(1000);
+  }
+
+  @AfterEach
+  void afterEach() {
+    template.update("delete from member where member_id like 'upsert%'");
+  }
+
+  @Test
+  void upsertV4_2() {
+    upsert(repositoryV4_2);
+  }
+
+  @Test
+  void upsertV5() {
+    upsert(repositoryV5);
+  }
+
+  @Test
+  void upsertAllV4_2() {
+    upsertAll(repositoryV4_2);
+  }
+
+  @Test
+  void upsertAllV5() {
+    upsertAll(repositoryV5);
+  }
+
+  @Test
+  void tooLongIdV4_2() {
+    tooLongId(repositoryV4_2);
+  }
+
+  @Test
+  void tooLongIdV5() {
+    tooLongId(repositoryV5);
+  }
+
+  // member_id 는 varchar(10) - upsert 도 save 와 같은 예외로 실패해야 한다.
+  private void tooLongId(MemberRepository repository) {
+    Member member = new Member("upsertTooLongId", 10000);
+    Throwable saveEx = catchThrowable(() -> repository.save(member));
+
+    assertThat(saveEx).isNotNull();
+    assertThatThrownBy(() -> repository.upsert(member)).isExactlyInstanceOf(saveEx.getClass());
+    assertThatThrownBy(() -> repository.upsertAll(List.of(member))).isExactlyInstanceOf(saveEx.getClass());
+  }
+
+  private void upsert(MemberRepository repository) {
+    repository.upsert(new Member("upsertA", 10000));
+    repository.upsert(new Member("upsertA", 20000));
+
+    Member findMember = repository.findById("upsertA");
+    assertThat(findMember.getMoney()).isEqualTo(20000);
+    assertThat(findMember.getVersion()).isEqualTo(1);
+  }
+
+  private void upsertAll(MemberRepository repository) {
+    repository.save(new Member("upsert0", 0));
+
+    // 이미 있는 회원이 섞여 있어도 중복 키 예외 없이 적재한다.
+    repository.upsertAll(members(COUNT, 10000));
+    repository.upsertAll(members(COUNT, 20000));
+
+    assertThat(template.queryForObject("select count(*) from member where member_id like 'upsert%' and money = 20000",
+            Integer.class)).isEqualTo(COUNT);
+  }
+
+  @Test
+  void compareWithDuplicateKeyRetry() {
+    List<Member> members = members(COUNT, 10000);
+    repositoryV4_2.saveAll(members);
+
+    // before - insert 후 중복 키 예외를 받으면 update
+    long start = System.nanoTime();
+    for (Member member : members) {
+      try {
+        repositoryV4_2.save(member);
+      } catch (DuplicateKeyException e) {
+        repositoryV4_2.update(member.getMemberId(), member.getMoney());
+      }
+    }
+    long retryNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (Member member : members) {
+      repositoryV4_2.upsert(member);
+    }
+    long upsertNanos = System.nanoTime() - start;
+
+    log.info("reload {} members, insert+duplicateKey+update={}ms, upsert={}ms",
+            COUNT, retryNanos / 1_000_000, upsertNanos / 1_000_000);
+  }
+
+  private List<Member> members(int count, int money) {
+    List<Member> members = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      members.add(new Member("upsert" + i, money));
+    }
+    return members;
+  }
+}
@@ -0,0 +1,111 @@
+package oneny.jdbcspring.repository;
+
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedMemberRepositoryTest {
+
+  static final String MEMBER_A = "stripeA";
+
+  static final int THREADS = 8;
+  static final int INCREMENTS_PER_THREAD = 100;
+
+  StripedMemberRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    repository = new StripedMemberRepository(dataSource, new DataSourceTransactionManager(dataSource), 4);
+    repository.save(new Member(MEMBER_A, 1000));
+  }
+
+  @AfterEach
+  void afterEach() {
+    repository.delete(MEMBER_A);
+  }
+
+  @Test
+  @DisplayName("여러 스레드가 나눠서 입금해도 조회하면 합계")
+  void concurrentIncrements() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    for (int i = 0; i < THREADS; i++) {
+      executor.submit(() -> {
+        for (int j = 0; j < INCREMENTS_PER_THREAD; j++) {
+          repository.incrementMoney(MEMBER_A, 1);
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(1000 + THREADS * INCREMENTS_PER_THREAD);
+  }
+
+  @Test
+  @DisplayName("현재 stripe 잔액이 부족하면 다른 로우에서 빌려서 출금")
+  void borrowAcrossStripes() {
+    repository.incrementMoney(MEMBER_A, 500);
+
+    assertThat(repository.decrementMoney(MEMBER_A, 1200, true)).isEqualTo(1);
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(300);
+    // 합계가 부족하면 변경하지 않는다.
+    assertThat(repository.decrementMoney(MEMBER_A, 301, true)).isZero();
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(300);
+  }
+
+  @Test
+  void update() {
+    repository.incrementMoney(MEMBER_A, 500);
+
+    repository.update(MEMBER_A, 700);
+
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(700);
+    assertThat(repository.findByIdForUpdate(MEMBER_A).getMoney()).isEqualTo(700);
+  }
+
+  @Test
+  @DisplayName("조회 후 stripe 에만 입금돼도 version 충돌")
+  void updateWithVersion() {
+    Member member = repository.findById(MEMBER_A);
+    repository.incrementMoney(MEMBER_A, 500);
+
+    assertThatThrownBy(() -> repository.updateWithVersion(MEMBER_A, member.getMoney() - 100, member.getVersion()))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+
+    Member reloaded = repository.findById(MEMBER_A);
+    repository.updateWithVersion(MEMBER_A, reloaded.getMoney() - 100, reloaded.getVersion());
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(1400);
+    assertThat(repository.findById(MEMBER_A).getVersion()).isEqualTo(reloaded.getVersion() + 1);
+  }
+
+  @Test
+  void streamAll() {
+    repository.incrementMoney(MEMBER_A, 500);
+
+    try (Stream<Member> stream = repository.streamAll(100)) {
+      assertThat(stream.filter(member -> member.getMemberId().equals(MEMBER_A)).map(Member::getMoney)).containsExactly(1500);
+    }
+  }
+
+  @Test
+  void memberNotFound() {
+    assertThat(repository.incrementMoney("unknown", 100)).isZero();
+    assertThat(repository.decrementMoney("unknown", 100, true)).isZero();
+  }
+}
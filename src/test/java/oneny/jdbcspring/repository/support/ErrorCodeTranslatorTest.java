@@ -0,0 +1,154 @@
+package oneny.jdbcspring.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.DbMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class ErrorCodeTranslatorTest {
+
+  static final int STORM = 10_000;
+
+  DataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+
+  @Test
+  void sharedPerDatabase() {
+    ErrorCodeTranslator translator = SqlExceptionTranslators.forDatabase("H2");
+
+    assertThat(translator.getDatabaseProductName()).isEqualTo("H2");
+    assertThat(SqlExceptionTranslators.forDataSource(dataSource)).isSameAs(translator);
+  }
+
+  @Test
+  @DisplayName("시작할 때 데이터베이스가 내려가 있으면 빈 에러 코드를 캐시하지 않고 다시 확인")
+  void resolveAfterDatabaseIsBack() {
+    SwitchableDataSource switchable = new SwitchableDataSource(dataSource);
+    SQLExceptionTranslator translator = SqlExceptionTranslators.forDataSource(switchable, Duration.ZERO);
+    assertThat(translator).isInstanceOf(SqlExceptionTranslators.UnresolvedTranslator.class);
+
+    // 제품을 모르는 동안은 SQLState 로만 변환
+    assertThat(translator.translate("save", null, duplicateKey())).isNotNull();
+    assertThat(((SqlExceptionTranslators.UnresolvedTranslator) translator).getResolved()).isNull();
+
+    switchable.down = false;
+    assertThat(translator.translate("save", null, duplicateKey())).isInstanceOf(DuplicateKeyException.class);
+    assertThat(((SqlExceptionTranslators.UnresolvedTranslator) translator).getResolved())
+            .isSameAs(SqlExceptionTranslators.forDatabase("H2"));
+  }
+
+  @Test
+  void translate() {
+    // 제품 이름으로 만들면 커넥션에 접근하지 않는다.
+    ErrorCodeTranslator translator = SqlExceptionTranslators.forDatabase("H2");
+
+    assertThat(translator.translate("save", null, duplicateKey())).isInstanceOf(DuplicateKeyException.class);
+    assertThat(translator.translate("select", "select bad grammar", new SQLException("bad", "42S22", 42122)))
+            .isInstanceOf(BadSqlGrammarException.class);
+    // 표에 없는 코드는 SQLState 로 변환
+    DataAccessException unknown = translator.translate("task", null, new SQLException("unknown", "08000", 1));
+    assertThat(unknown).isNotNull();
+  }
+
+  @Test
+  @DisplayName("SQLState 로 변환하는 DB 는 숫자 SQLState 를 에러 코드로 보지 않는다")
+  void sqlStateDatabase() {
+    ErrorCodeTranslator translator = SqlExceptionTranslators.forDatabase("PostgreSQL");
+
+    assertThat(translator.translate("save", null, new SQLException("duplicate", "23505", 0)))
+            .isInstanceOf(DuplicateKeyException.class);
+    assertThat(translator.translate("save", null, new SQLException("vendor code", "99999", 23505)))
+            .isNotInstanceOf(DuplicateKeyException.class);
+  }
+
+  @Test
+  void batchUpdateNestedSqlState() {
+    ErrorCodeTranslator translator = SqlExceptionTranslators.forDatabase("H2");
+    BatchUpdateException batchEx = new BatchUpdateException("batch", "23505", 0, new int[0]);
+    batchEx.setNextException(new SQLException("duplicate", "23505", 23505));
+
+    assertThat(translator.translate("saveAll", null, batchEx)).isInstanceOf(DuplicateKeyException.class);
+  }
+
+  @Test
+  void duplicateKeyStorm() {
+    SQLException duplicateKey = duplicateKey();
+    SQLExceptionTranslator translator = SqlExceptionTranslators.forDataSource(dataSource);
+
+    // before - 리포지토리 인스턴스마다 새 번역기 (첫 변환에서 메타데이터 조회)
+    long start = System.nanoTime();
+    for (int i = 0; i < 100; i++) {
+      new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("save", null, duplicateKey);
+    }
+    long perInstanceNanos = (System.nanoTime() - start) / 100;
+
+    SQLErrorCodeSQLExceptionTranslator shared = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+    shared.translate("save", null, duplicateKey);
+    start = System.nanoTime();
+    for (int i = 0; i < STORM; i++) {
+      shared.translate("save", null, duplicateKey);
+    }
+    long springNanos = (System.nanoTime() - start) / STORM;
+
+    start = System.nanoTime();
+    for (int i = 0; i < STORM; i++) {
+      translator.translate("save", null, duplicateKey);
+    }
+    long fastNanos = (System.nanoTime() - start) / STORM;
+
+    log.info("duplicate key translate avg newTranslator={}ns, sharedSpring={}ns, errorCodeTable={}ns",
+            perInstanceNanos, springNanos, fastNanos);
+  }
+
+  static class SwitchableDataSource extends DelegatingDataSource {
+    volatile boolean down = true;
+
+    SwitchableDataSource(DataSource target) {
+      super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      if (down) {
+        throw new SQLException("database is down", "08001");
+      }
+      return super.getConnection();
+    }
+  }
+
+  private SQLException duplicateKey() {
+    try (Connection con = dataSource.getConnection()) {
+      PreparedStatement pstmt = con.prepareStatement("insert into member(member_id, money) values (?, ?)");
+      pstmt.setString(1, "dupKey");
+      pstmt.setInt(2, 0);
+      pstmt.executeUpdate();
+      pstmt.executeUpdate();
+      throw new IllegalStateException("duplicate key expected");
+    } catch (SQLException e) {
+      return e;
+    } finally {
+      try (Connection con = dataSource.getConnection()) {
+        con.createStatement().executeUpdate("delete from member where member_id = 'dupKey'");
+      } catch (SQLException e) {
+        log.info("error", e);
+      }
+    }
+  }
+}
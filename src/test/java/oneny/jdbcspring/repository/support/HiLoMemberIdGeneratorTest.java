@@ -0,0 +1,61 @@
+package oneny.jdbcspring.repository.support;
+
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepositoryV5;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HiLoMemberIdGeneratorTest {
+
+  static final int THREADS = 8;
+  static final int IDS_PER_THREAD = 1000;
+
+  DataSource dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+
+  @Test
+  @DisplayName("두 노드, 여러 스레드에서 만든 ID 가 겹치지 않는다")
+  void uniqueAcrossNodesAndThreads() throws InterruptedException {
+    HiLoMemberIdGenerator node1 = new HiLoMemberIdGenerator(dataSource, 50, "g");
+    HiLoMemberIdGenerator node2 = new HiLoMemberIdGenerator(dataSource, 50, "g");
+    Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    for (int i = 0; i < THREADS; i++) {
+      HiLoMemberIdGenerator generator = i % 2 == 0 ? node1 : node2;
+      executor.submit(() -> {
+        for (int j = 0; j < IDS_PER_THREAD; j++) {
+          ids.add(generator.nextId());
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    assertThat(ids).allSatisfy(id -> assertThat(id.length()).isLessThanOrEqualTo(HiLoMemberIdGenerator.MAX_ID_LENGTH));
+  }
+
+  @Test
+  void saveWithGeneratedId() {
+    MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+    repository.setIdGenerator(new HiLoMemberIdGenerator(dataSource, 10, "g"));
+
+    Member member = repository.save(new Member(null, 10000));
+
+    assertThat(member.getMemberId()).startsWith("g");
+    assertThat(repository.findById(member.getMemberId()).getMoney()).isEqualTo(10000);
+    repository.delete(member.getMemberId());
+  }
+}
@@ -0,0 +1,37 @@
+package oneny.jdbcspring.repository.support;
+
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberRowMapperTest {
+
+  JdbcTemplate template;
+
+  @BeforeEach
+  void setUp() {
+    template = new JdbcTemplate(new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD));
+    template.update("insert into member(member_id, money, version) values ('mapperA', 10000, 3)");
+  }
+
+  @AfterEach
+  void afterEach() {
+    template.update("delete from member where member_id = 'mapperA'");
+  }
+
+  @Test
+  void mapByIndex() {
+    String sql = "select " + MemberRowMapper.COLUMNS + " from member where member_id = ?";
+
+    Member member = template.queryForObject(sql, MemberRowMapper.INSTANCE, "mapperA");
+
+    assertThat(member).isEqualTo(new Member("mapperA", 10000, 3));
+  }
+}
@@ -0,0 +1,96 @@
+package oneny.jdbcspring.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.connection.DbMode;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static oneny.jdbcspring.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class PreparedStatementCacheTest {
+
+  static final String MEMBER_A = "stmtA";
+
+  DriverManagerDataSource dataSource;
+  MemberRepositoryV4_2 repository;
+  TransactionTemplate txTemplate;
+
+  @BeforeEach
+  void setUp() {
+    dataSource = new DriverManagerDataSource(DbMode.MEMORY.getUrl(), USERNAME, PASSWORD);
+    repository = new MemberRepositoryV4_2(dataSource);
+    txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    repository.save(new Member(MEMBER_A, 10000));
+  }
+
+  @AfterEach
+  void afterEach() {
+    repository.delete(MEMBER_A);
+  }
+
+  @Test
+  void reuseInTransaction() {
+    PreparedStatementCache cache = repository.getStatementCache();
+    long hitsBefore = cache.getHitCount();
+    long missesBefore = cache.getMissCount();
+
+    // 계좌이체와 같은 모양: findById 2번, update 2번
+    txTemplate.executeWithoutResult(status -> {
+      for (int i = 0; i < 2; i++) {
+        Member member = repository.findById(MEMBER_A);
+        repository.update(MEMBER_A, member.getMoney() + 100);
+      }
+    });
+
+    log.info("hitRate={}", cache.getHitRate());
+    assertThat(cache.getMissCount() - missesBefore).isEqualTo(2);
+    assertThat(cache.getHitCount() - hitsBefore).isEqualTo(2);
+    assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(10200);
+  }
+
+  @Test
+  void noCacheWithoutTransaction() {
+    PreparedStatementCache cache = repository.getStatementCache();
+    long hitsBefore = cache.getHitCount();
+    long uncachedBefore = cache.getUncachedCount();
+
+    repository.findById(MEMBER_A);
+    repository.findById(MEMBER_A);
+
+    assertThat(cache.getHitCount()).isEqualTo(hitsBefore);
+    assertThat(cache.getUncachedCount() - uncachedBefore).isEqualTo(2);
+  }
+
+  @Test
+  void lruEviction() {
+    PreparedStatementCache cache = new PreparedStatementCache(1);
+
+    txTemplate.executeWithoutResult(status -> {
+      try {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        PreparedStatement first = cache.prepare(con, "select 1");
+        cache.prepare(con, "select 2"); // "select 1" 은 LRU 로 밀려나서 닫힌다.
+        assertThat(first.isClosed()).isTrue();
+        assertThat(cache.prepare(con, "select 2")).isNotNull();
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,131 @@
+package oneny.jdbcspring.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncTransferServiceTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch started = new CountDownLatch(1);
+  private AsyncTransferService asyncService;
+
+  // DB 대신 release 될 때까지 멈춰 있는 이체
+  private final MemberServiceV4 blockingService = new MemberServiceV4(null) {
+    @Override
+    public void accountTransfer(String fromId, String toId, int money) {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (toId.equals("ex")) {
+        throw new IllegalStateException("이체 중 예외 발생");
+      }
+    }
+  };
+
+  @AfterEach
+  void afterEach() {
+    release.countDown();
+    asyncService.close();
+  }
+
+  @Test
+  void completeAsynchronously() throws Exception {
+    asyncService = new AsyncTransferService(blockingService, 1, 10, AsyncTransferService.RejectionPolicy.FAIL_FAST, Duration.ofSeconds(5));
+
+    CompletableFuture<Void> success = asyncService.accountTransfer("memberA", "memberB", 1000);
+    CompletableFuture<Void> failure = asyncService.accountTransfer("memberA", "ex", 1000);
+    // 호출한 스레드는 기다리지 않는다.
+    assertThat(success).isNotDone();
+
+    release.countDown();
+    success.get(5, TimeUnit.SECONDS);
+    assertThatThrownBy(() -> failure.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void failFast() throws InterruptedException {
+    asyncService = new AsyncTransferService(blockingService, 1, 1, AsyncTransferService.RejectionPolicy.FAIL_FAST, Duration.ofSeconds(5));
+    asyncService.accountTransfer("memberA", "memberB", 1);
+    started.await(5, TimeUnit.SECONDS);
+    asyncService.accountTransfer("memberA", "memberB", 1); // 대기열
+
+    CompletableFuture<Void> rejected = asyncService.accountTransfer("memberA", "memberB", 1);
+
+    assertThat(rejected).isCompletedExceptionally();
+    assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+    assertThat(asyncService.getRejectedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void callerRuns() throws InterruptedException {
+    asyncService = new AsyncTransferService(blockingService, 1, 1, AsyncTransferService.RejectionPolicy.CALLER_RUNS, Duration.ofSeconds(5));
+    asyncService.accountTransfer("memberA", "memberB", 1);
+    started.await(5, TimeUnit.SECONDS);
+    asyncService.accountTransfer("memberA", "memberB", 1); // 대기열
+    release.countDown();
+
+    // 대기열이 가득 차서 호출한 스레드에서 실행한다.
+    CompletableFuture<Void> callerRun = asyncService.accountTransfer("memberA", "memberB", 1);
+    assertThat(callerRun).isCompleted();
+  }
+
+  @Test
+  @DisplayName("종료 후에는 호출한 스레드에서 실행하지 않고 RejectedExecutionException 으로 완료")
+  void callerRunsAfterClose() {
+    asyncService = new AsyncTransferService(blockingService, 1, 1, AsyncTransferService.RejectionPolicy.CALLER_RUNS, Duration.ofSeconds(5));
+    asyncService.close();
+
+    CompletableFuture<Void> afterClose = asyncService.accountTransfer("memberA", "memberB", 1);
+
+    assertThat(afterClose).isCompletedExceptionally();
+    assertThatThrownBy(afterClose::join).hasCauseInstanceOf(RejectedExecutionException.class);
+    assertThat(asyncService.getRejectedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void discardOldest() throws Exception {
+    asyncService = new AsyncTransferService(blockingService, 1, 1, AsyncTransferService.RejectionPolicy.DISCARD_OLDEST, Duration.ofSeconds(5));
+    asyncService.accountTransfer("memberA", "memberB", 1);
+    started.await(5, TimeUnit.SECONDS);
+    CompletableFuture<Void> oldest = asyncService.accountTransfer("memberA", "memberB", 1);
+
+    CompletableFuture<Void> newest = asyncService.accountTransfer("memberA", "memberB", 1);
+
+    assertThatThrownBy(oldest::join).hasCauseInstanceOf(RejectedExecutionException.class);
+    release.countDown();
+    newest.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void expireInQueue() throws InterruptedException {
+    asyncService = new AsyncTransferService(blockingService, 1, 10, AsyncTransferService.RejectionPolicy.FAIL_FAST, Duration.ofMillis(50));
+    asyncService.accountTransfer("memberA", "memberB", 1);
+    started.await(5, TimeUnit.SECONDS);
+    CompletableFuture<Void> queued = asyncService.accountTransfer("memberA", "memberB", 1);
+
+    Thread.sleep(100);
+    release.countDown();
+
+    assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(TimeoutException.class);
+    assertThat(asyncService.getExpiredCount()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,142 @@
+package oneny.jdbcspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.domain.Transfer;
+import oneny.jdbcspring.repository.MemberRepository;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 대량 이체 - 청크 커밋, 실패한 이체만 세이브포인트로 되돌린다.
+ */
+@Slf4j
+@SpringBootTest
+class BulkTransferServiceTest {
+
+  public static final String MEMBER_A = "memberA";
+  public static final String MEMBER_B = "memberB";
+  public static final String MEMBER_EX = "ex";
+
+  static final int TRANSFERS = 1000;
+
+  @Autowired
+  private MemberRepository memberRepository;
+  @Autowired
+  private MemberServiceV4 memberService;
+  @Autowired
+  private BulkTransferService bulkTransferService;
+
+  @TestConfiguration
+  static class TestConfig {
+
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+
+    public TestConfig(DataSource dataSource, PlatformTransactionManager transactionManager) {
+      this.dataSource = dataSource;
+      this.transactionManager = transactionManager;
+    }
+
+    @Bean
+    MemberRepository memberRepository() {
+      return new MemberRepositoryV4_2(dataSource);
+    }
+
+    @Bean
+    MemberServiceV4 memberServiceV4() {
+      return new MemberServiceV4(memberRepository());
+    }
+
+    @Bean
+    BulkTransferService bulkTransferService() {
+      return new BulkTransferService(transactionManager, memberRepository(), 100);
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    memberRepository.save(new Member(MEMBER_A, 10000));
+    memberRepository.save(new Member(MEMBER_B, 10000));
+    memberRepository.save(new Member(MEMBER_EX, 10000));
+  }
+
+  @AfterEach
+  void afterEach() {
+    memberRepository.delete(MEMBER_A);
+    memberRepository.delete(MEMBER_B);
+    memberRepository.delete(MEMBER_EX);
+  }
+
+  @Test
+  @DisplayName("모두 성공")
+  void transferAll() {
+    List<Transfer> transfers = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      transfers.add(i % 2 == 0 ? new Transfer(MEMBER_A, MEMBER_B, 3) : new Transfer(MEMBER_B, MEMBER_A, 1));
+    }
+
+    BulkTransferService.Result result = bulkTransferService.transferAll(transfers);
+
+    assertThat(result.succeeded()).isEqualTo(TRANSFERS);
+    assertThat(result.failures()).isEmpty();
+    assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000 - TRANSFERS);
+    assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000 + TRANSFERS);
+  }
+
+  @Test
+  @DisplayName("실패한 이체만 되돌리고 같은 청크의 나머지는 커밋")
+  void skipFailedTransfers() {
+    List<Transfer> transfers = List.of(
+            new Transfer(MEMBER_A, MEMBER_B, 1000),
+            new Transfer(MEMBER_A, MEMBER_EX, 1000), // 검증 실패
+            new Transfer(MEMBER_B, MEMBER_A, 50000), // 잔액 부족
+            new Transfer(MEMBER_A, "unknown", 1000), // 회원 없음
+            new Transfer(MEMBER_B, MEMBER_A, 500));
+
+    BulkTransferService.Result result = bulkTransferService.transferAll(transfers);
+
+    assertThat(result.succeeded()).isEqualTo(2);
+    assertThat(result.failures()).extracting(BulkTransferService.Failure::transfer)
+            .containsExactly(transfers.get(1), transfers.get(2), transfers.get(3));
+    assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9500);
+    assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10500);
+    assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000);
+  }
+
+  @Test
+  @DisplayName("accountTransfer 반복과 비교")
+  void compareWithAccountTransfer() {
+    List<Transfer> transfers = new ArrayList<>();
+    for (int i = 0; i < TRANSFERS; i++) {
+      transfers.add(new Transfer(MEMBER_A, MEMBER_B, 1));
+    }
+
+    long start = System.nanoTime();
+    for (Transfer transfer : transfers) {
+      memberService.accountTransfer(transfer.fromId(), transfer.toId(), transfer.money());
+    }
+    long singleNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    bulkTransferService.transferAll(transfers);
+    long bulkNanos = System.nanoTime() - start;
+
+    log.info("transfers={}, accountTransfer={}ms, transferAll={}ms", TRANSFERS, singleNanos / 1_000_000, bulkNanos / 1_000_000);
+    assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000 - 2 * TRANSFERS);
+  }
+}
@@ -1,5 +1,6 @@
 package oneny.jdbcspring.service;
 
+import oneny.jdbcspring.connection.SchemaInitializer;
 import oneny.jdbcspring.domain.Member;
 import oneny.jdbcspring.repository.MemberRepositoryV2;
 import oneny.jdbcspring.repository.MemberRepositoryV3;
@@ -32,6 +33,7 @@ class MemberServiceV3_1Test {
   @BeforeEach
   void setUp() {
     DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USERNAME, PASSWORD);
+    SchemaInitializer.initialize(dataSource);
     memberRepository = new MemberRepositoryV3(dataSource);
 
     DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
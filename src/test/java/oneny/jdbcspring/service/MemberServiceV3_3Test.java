@@ -135,4 +135,40 @@ class MemberServiceV3_3Test {
             () -> assertThat(findMemberB.getMoney()).isEqualTo(10000)
     );
   }
+
+  @Test
+  @DisplayName("비관적 락 이체 - 이체 방향과 상관없이 memberId 순서로 잠근다")
+  void accountTransferPessimistic() throws SQLException {
+    // given
+    memberRepository.save(new Member(MEMBER_A, 10000));
+    memberRepository.save(new Member(MEMBER_B, 10000));
+
+    // when
+    memberService.accountTransferPessimistic(MEMBER_A, MEMBER_B, 2000);
+    memberService.accountTransferPessimistic(MEMBER_B, MEMBER_A, 500);
+
+    // then
+    assertAll(
+            () -> assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8500),
+            () -> assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(11500)
+    );
+  }
+
+  @Test
+  @DisplayName("비관적 락 이체 중 예외 발생")
+  void accountTransferPessimisticEx() throws SQLException {
+    // given
+    memberRepository.save(new Member(MEMBER_A, 10000));
+    memberRepository.save(new Member(MEMBER_EX, 10000));
+
+    // when
+    assertThatThrownBy(() -> memberService.accountTransferPessimistic(MEMBER_A, MEMBER_EX, 2000))
+            .isInstanceOf(IllegalStateException.class);
+
+    // then - 롤백
+    assertAll(
+            () -> assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000),
+            () -> assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000)
+    );
+  }
 }
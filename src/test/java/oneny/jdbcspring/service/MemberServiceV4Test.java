@@ -126,4 +126,63 @@ class MemberServiceV4Test {
             () -> assertThat(findMemberB.getMoney()).isEqualTo(10000)
     );
   }
+
+  @Test
+  @DisplayName("상대 금액 이체")
+  void accountTransferRelative() {
+    // given
+    Member memberA = new Member(MEMBER_A, 10000);
+    Member memberB = new Member(MEMBER_B, 10000);
+    memberRepository.save(memberA);
+    memberRepository.save(memberB);
+
+    // when
+    memberService.accountTransferRelative(memberA.getMemberId(), memberB.getMemberId(), 2000);
+
+    // then
+    assertAll(
+            () -> assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(8000),
+            () -> assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(12000)
+    );
+  }
+
+  @Test
+  @DisplayName("상대 금액 이체 - 잔액 부족")
+  void accountTransferRelativeInsufficient() {
+    // given
+    Member memberA = new Member(MEMBER_A, 1000);
+    Member memberB = new Member(MEMBER_B, 10000);
+    memberRepository.save(memberA);
+    memberRepository.save(memberB);
+
+    // when
+    assertThatThrownBy(() -> memberService.accountTransferRelative(memberA.getMemberId(), memberB.getMemberId(), 2000))
+            .isInstanceOf(IllegalStateException.class);
+
+    // then
+    assertAll(
+            () -> assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(1000),
+            () -> assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(10000)
+    );
+  }
+
+  @Test
+  @DisplayName("상대 금액 이체 중 예외 발생")
+  void accountTransferRelativeEx() {
+    // given
+    Member memberA = new Member(MEMBER_A, 10000);
+    Member memberEx = new Member(MEMBER_EX, 10000);
+    memberRepository.save(memberA);
+    memberRepository.save(memberEx);
+
+    // when
+    assertThatThrownBy(() -> memberService.accountTransferRelative(memberA.getMemberId(), memberEx.getMemberId(), 2000))
+            .isInstanceOf(IllegalStateException.class);
+
+    // then
+    assertAll(
+            () -> assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(10000),
+            () -> assertThat(memberRepository.findById(MEMBER_EX).getMoney()).isEqualTo(10000)
+    );
+  }
 }
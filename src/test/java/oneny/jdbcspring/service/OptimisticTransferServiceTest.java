@@ -0,0 +1,114 @@
+package oneny.jdbcspring.service;
+
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepository;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 낙관적 락 - version 컬럼, 충돌 시 재시도
+ * 기존 accountTransfer, 비관적 락과의 처리량 비교는 TransferStrategyBenchmark 의 v4Crossing* 벤치마크로 잰다.
+ */
+@SpringBootTest
+class OptimisticTransferServiceTest {
+
+  public static final String MEMBER_A = "memberA";
+  public static final String MEMBER_B = "memberB";
+
+  static final int THREADS = 8;
+  static final int TRANSFERS_PER_THREAD = 50;
+
+  @Autowired
+  private MemberRepository memberRepository;
+  @Autowired
+  private OptimisticTransferService optimisticTransferService;
+
+  @TestConfiguration
+  static class TestConfig {
+
+    private final DataSource dataSource;
+
+    public TestConfig(DataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+
+    @Bean
+    MemberRepository memberRepository() {
+      return new MemberRepositoryV4_2(dataSource);
+    }
+
+    @Bean
+    MemberServiceV4 memberServiceV4() {
+      return new MemberServiceV4(memberRepository());
+    }
+
+    @Bean
+    OptimisticTransferService optimisticTransferService() {
+      return new OptimisticTransferService(memberServiceV4(), 100, Duration.ofMillis(1), Duration.ofMillis(50));
+    }
+  }
+
+  @AfterEach
+  void afterEach() {
+    memberRepository.delete(MEMBER_A);
+    memberRepository.delete(MEMBER_B);
+  }
+
+  @Test
+  @DisplayName("version 이 바뀌었으면 충돌")
+  void versionConflict() {
+    memberRepository.save(new Member(MEMBER_A, 10000));
+    Member member = memberRepository.findById(MEMBER_A);
+
+    memberRepository.update(MEMBER_A, 9000); // version 0 -> 1
+
+    assertThatThrownBy(() -> memberRepository.updateWithVersion(MEMBER_A, 8000, member.getVersion()))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+    assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(9000);
+  }
+
+  @Test
+  @DisplayName("동시 이체 - 충돌하면 재시도해서 갱신 손실 없이 모두 반영된다")
+  void contention() throws InterruptedException {
+    int total = THREADS * TRANSFERS_PER_THREAD;
+    memberRepository.save(new Member(MEMBER_A, total));
+    memberRepository.save(new Member(MEMBER_B, 0));
+
+    AtomicInteger failures = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    for (int i = 0; i < THREADS; i++) {
+      executor.submit(() -> {
+        for (int j = 0; j < TRANSFERS_PER_THREAD; j++) {
+          try {
+            optimisticTransferService.accountTransfer(MEMBER_A, MEMBER_B, 1);
+          } catch (RuntimeException e) {
+            failures.incrementAndGet();
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(failures.get()).isZero();
+    assertThat(memberRepository.findById(MEMBER_A).getMoney()).isZero();
+    assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(total);
+  }
+}
@@ -0,0 +1,102 @@
+package oneny.jdbcspring.service;
+
+import oneny.jdbcspring.domain.Member;
+import oneny.jdbcspring.repository.MemberRepository;
+import oneny.jdbcspring.repository.MemberRepositoryV4_2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 비관적 락 - A->B, B->A 이체를 동시에 실행
+ */
+@SpringBootTest
+class PessimisticTransferTest {
+
+  public static final String MEMBER_A = "memberA";
+  public static final String MEMBER_B = "memberB";
+
+  static final int THREADS = 16;
+  static final int TRANSFERS_PER_THREAD = 100;
+  static final int INITIAL_MONEY = 1_000_000;
+
+  @Autowired
+  private MemberRepository memberRepository;
+  @Autowired
+  private MemberServiceV4 memberService;
+
+  @TestConfiguration
+  static class TestConfig {
+
+    private final DataSource dataSource;
+
+    public TestConfig(DataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+
+    @Bean
+    MemberRepository memberRepository() {
+      return new MemberRepositoryV4_2(dataSource);
+    }
+
+    @Bean
+    MemberServiceV4 memberServiceV4() {
+      return new MemberServiceV4(memberRepository());
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    memberRepository.save(new Member(MEMBER_A, INITIAL_MONEY));
+    memberRepository.save(new Member(MEMBER_B, INITIAL_MONEY));
+  }
+
+  @AfterEach
+  void afterEach() {
+    memberRepository.delete(MEMBER_A);
+    memberRepository.delete(MEMBER_B);
+  }
+
+  /**
+   * 기존 accountTransfer 와의 처리량 비교는 TransferStrategyBenchmark 의 v4Crossing* 벤치마크로 잰다.
+   */
+  @Test
+  @DisplayName("순서대로 락을 걸면 교착 상태 없이 모두 성공")
+  void crossingTransfers() throws InterruptedException {
+    AtomicInteger failures = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    for (int i = 0; i < THREADS; i++) {
+      String fromId = i % 2 == 0 ? MEMBER_A : MEMBER_B;
+      String toId = i % 2 == 0 ? MEMBER_B : MEMBER_A;
+      executor.submit(() -> {
+        for (int j = 0; j < TRANSFERS_PER_THREAD; j++) {
+          try {
+            memberService.accountTransferPessimistic(fromId, toId, 1);
+          } catch (RuntimeException e) {
+            failures.incrementAndGet();
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(120, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(failures.get()).isZero();
+    // 같은 횟수만큼 서로 이체했으므로 잔액은 그대로
+    assertThat(memberRepository.findById(MEMBER_A).getMoney()).isEqualTo(INITIAL_MONEY);
+    assertThat(memberRepository.findById(MEMBER_B).getMoney()).isEqualTo(INITIAL_MONEY);
+  }
+}
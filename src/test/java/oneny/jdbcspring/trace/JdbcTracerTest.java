@@ -0,0 +1,82 @@
+package oneny.jdbcspring.trace;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcTracerTest {
+
+  @Test
+  void sampling() {
+    CollectingSink sink = new CollectingSink();
+    JdbcTracer tracer = new JdbcTracer(sink, 1.0, Map.of("getConnection", 0.0));
+
+    tracer.end("getConnection", null, 0, tracer.start("getConnection"), null);
+    tracer.end("update", "update member", 1, tracer.start("update"), null);
+
+    assertThat(sink.events).extracting(JdbcTraceEvent::operation).containsExactly("update");
+    assertThat(sink.events.get(0).rows()).isEqualTo(1);
+  }
+
+  @Test
+  void disabledSinkSkipsSampling() {
+    CollectingSink sink = new CollectingSink();
+    sink.enabled = false;
+    JdbcTracer tracer = new JdbcTracer(sink, 1.0, Map.of());
+
+    assertThat(tracer.start("update")).isEqualTo(JdbcTracer.NOT_SAMPLED);
+  }
+
+  @Test
+  void ringBufferDeliversAsync() {
+    CollectingSink target = new CollectingSink();
+    try (RingBufferTraceSink sink = new RingBufferTraceSink(target, 1024)) {
+      JdbcTracer tracer = new JdbcTracer(sink, 1.0, Map.of());
+      for (int i = 0; i < 100; i++) {
+        tracer.end("update", "update member", 1, tracer.start("update"), null);
+      }
+    }
+
+    assertThat(target.events).hasSize(100);
+  }
+
+  @Test
+  void ringBufferDropsWhenFull() {
+    CollectingSink slowTarget = new CollectingSink() {
+      @Override
+      public void accept(JdbcTraceEvent event) {
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    try (RingBufferTraceSink sink = new RingBufferTraceSink(slowTarget, 4)) {
+      JdbcTracer tracer = new JdbcTracer(sink, 1.0, Map.of());
+      for (int i = 0; i < 100; i++) {
+        tracer.end("update", "update member", 1, tracer.start("update"), null);
+      }
+      assertThat(sink.getDroppedCount()).isPositive();
+    }
+  }
+
+  static class CollectingSink implements JdbcTraceSink {
+    final List<JdbcTraceEvent> events = new CopyOnWriteArrayList<>();
+    volatile boolean enabled = true;
+
+    @Override
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    @Override
+    public void accept(JdbcTraceEvent event) {
+      events.add(event);
+    }
+  }
+}